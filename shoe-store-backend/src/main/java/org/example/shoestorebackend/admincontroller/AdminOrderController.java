@@ -1,20 +1,33 @@
 package org.example.shoestorebackend.admincontroller;
 
+import org.example.shoestorebackend.dto.AdminOrderSummaryDTO;
 import org.example.shoestorebackend.dto.OrderDTO;
 import org.example.shoestorebackend.dto.OrderItemDTO;
 import org.example.shoestorebackend.dto.UserDTO;
 import org.example.shoestorebackend.entity.Order;
 import org.example.shoestorebackend.entity.OrderItem;
 import org.example.shoestorebackend.entity.User;
+import org.example.shoestorebackend.service.OrderExportService;
 import org.example.shoestorebackend.service.OrderService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -23,9 +36,15 @@ import java.util.stream.Collectors;
 public class AdminOrderController {
     private static final Logger logger = Logger.getLogger(AdminOrderController.class.getName());
 
+    private static final Set<String> SORTABLE_ORDER_FIELDS = Set.of("id", "createdAt", "totalAmount", "status");
+    private static final int MAX_PAGE_SIZE = 100;
+
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private OrderExportService orderExportService;
+
     @GetMapping
     @Transactional(readOnly = true)
     public ResponseEntity<List<OrderDTO>> getAllOrders() {
@@ -35,6 +54,65 @@ public class AdminOrderController {
                 .collect(Collectors.toList());
         return ResponseEntity.ok(orderDTOs);
     }
+
+    @GetMapping("/paged")
+    public ResponseEntity<?> getOrdersPaged(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) String paymentMethod,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "createdAt") String sortBy,
+            @RequestParam(defaultValue = "desc") String direction
+    ) {
+        try {
+            Order.Status statusEnum = status != null && !status.isEmpty() ? Order.Status.valueOf(status.toUpperCase()) : null;
+            if (!SORTABLE_ORDER_FIELDS.contains(sortBy)) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Invalid sort field"));
+            }
+            Sort sort = Sort.by("asc".equalsIgnoreCase(direction) ? Sort.Direction.ASC : Sort.Direction.DESC, sortBy);
+            Pageable pageable = PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_PAGE_SIZE), sort);
+
+            Page<AdminOrderSummaryDTO> orders = orderService.getOrderSummariesForAdmin(
+                    statusEnum, userId, paymentMethod, from, to, pageable);
+            return ResponseEntity.ok(orders);
+        } catch (IllegalArgumentException e) {
+            logger.severe("Invalid status value: " + e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid status value"));
+        }
+    }
+
+    // Export đơn hàng và từng sản phẩm trong đơn (format=csv|ndjson), ghi ra response theo luồng
+    @GetMapping("/export")
+    public ResponseEntity<?> exportOrders(
+            @RequestParam(defaultValue = OrderExportService.FORMAT_CSV) String format,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        boolean ndjson = OrderExportService.FORMAT_NDJSON.equalsIgnoreCase(format);
+        if (!ndjson && !OrderExportService.FORMAT_CSV.equalsIgnoreCase(format)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid format"));
+        }
+        Order.Status statusEnum;
+        try {
+            statusEnum = status != null && !status.isEmpty() ? Order.Status.valueOf(status.toUpperCase()) : null;
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid status value"));
+        }
+        logger.info("Exporting orders - format: " + format + ", status: " + status + ", from: " + from + ", to: " + to);
+
+        StreamingResponseBody body = output -> orderExportService.export(format, statusEnum, from, to, output);
+        String fileName = "orders." + (ndjson ? "ndjson" : "csv");
+        return ResponseEntity.ok()
+                .contentType(ndjson ? new MediaType("application", "x-ndjson", StandardCharsets.UTF_8)
+                        : new MediaType("text", "csv", StandardCharsets.UTF_8))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(body);
+    }
+
     @GetMapping("/{id}")
     @Transactional(readOnly = true)
     public ResponseEntity<OrderDTO> getOrderDetails(@PathVariable Long id) {
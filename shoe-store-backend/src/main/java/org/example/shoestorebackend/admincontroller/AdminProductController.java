@@ -2,30 +2,33 @@ package org.example.shoestorebackend.admincontroller;
 
 import org.example.shoestorebackend.dto.ProductColorDTO;
 import org.example.shoestorebackend.dto.ProductDTO;
+import org.example.shoestorebackend.dto.ProductImportResultDTO;
 import org.example.shoestorebackend.dto.ProductSizeDTO;
 import org.example.shoestorebackend.dto.ProductVariantDTO;
 import org.example.shoestorebackend.entity.Product;
+import org.example.shoestorebackend.service.ImageStorageService;
+import org.example.shoestorebackend.service.ProductBulkService;
+import org.example.shoestorebackend.service.ProductCacheService;
 import org.example.shoestorebackend.service.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.File;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
 import java.util.logging.Logger;
 
 @RestController
@@ -36,6 +39,15 @@ public class AdminProductController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private ProductCacheService productCacheService;
+
+    @Autowired
+    private ProductBulkService productBulkService;
+
+    @Autowired
+    private ImageStorageService imageStorageService;
+
     @GetMapping
     @Transactional(readOnly = true)
     public ResponseEntity<Object> getAllProductsPaged(
@@ -89,6 +101,41 @@ public class AdminProductController {
         }
     }
 
+    @GetMapping("/cache-stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(productCacheService.getStats());
+    }
+
+    // Import hàng loạt từ CSV (mỗi dòng một variant), trả về số sản phẩm đã thêm và các dòng lỗi
+    @PostMapping(value = "/import", consumes = "multipart/form-data")
+    public ResponseEntity<?> importProducts(@RequestPart("file") MultipartFile file) {
+        if (file == null || file.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "File CSV rỗng"));
+        }
+        try (InputStream input = file.getInputStream()) {
+            logger.info("Importing products from file: " + file.getOriginalFilename());
+            ProductImportResultDTO result = productBulkService.importCsv(input);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            logger.severe("Error importing products: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Server error: " + e.getMessage()));
+        }
+    }
+
+    // Export toàn bộ catalog cùng định dạng với import, ghi thẳng ra response theo luồng
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts() {
+        logger.info("Exporting product catalog");
+        StreamingResponseBody body = productBulkService::exportCsv;
+        return ResponseEntity.ok()
+                .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"products.csv\"")
+                .body(body);
+    }
+
     @PostMapping
     public ResponseEntity<?> createProduct(@RequestBody ProductRequest productRequest) {
         try {
@@ -124,16 +171,9 @@ public class AdminProductController {
 
             String imageUrl = null;
 
+            // Chỉ lưu ảnh gốc; các bản resize được sinh ở background sau khi sản phẩm được lưu
             if (imageFile != null && !imageFile.isEmpty()) {
-                String fileName = UUID.randomUUID() + "_" + imageFile.getOriginalFilename();
-                String uploadDir = "D:/shoe-images/";
-                File uploadDirectory = new File(uploadDir);
-                if (!uploadDirectory.exists()) {
-                    uploadDirectory.mkdirs();
-                }
-                Path imagePath = Paths.get(uploadDir + fileName);
-                Files.copy(imageFile.getInputStream(), imagePath, StandardCopyOption.REPLACE_EXISTING);
-                imageUrl = "/images/" + fileName;
+                imageUrl = imageStorageService.store(imageFile);
             }
 
             ProductDTO savedProduct = productService.createProductWithVariants(
@@ -194,16 +234,9 @@ public class AdminProductController {
 
             String imageUrl = productRequest.getImageUrl();
 
+            // Chỉ lưu ảnh gốc; các bản resize được sinh ở background sau khi sản phẩm được lưu
             if (imageFile != null && !imageFile.isEmpty()) {
-                String fileName = UUID.randomUUID() + "_" + imageFile.getOriginalFilename();
-                String uploadDir = "D:/shoe-images/";
-                File uploadDirectory = new File(uploadDir);
-                if (!uploadDirectory.exists()) {
-                    uploadDirectory.mkdirs();
-                }
-                Path imagePath = Paths.get(uploadDir + fileName);
-                Files.copy(imageFile.getInputStream(), imagePath, StandardCopyOption.REPLACE_EXISTING);
-                imageUrl = "/images/" + fileName;
+                imageUrl = imageStorageService.store(imageFile);
             }
 
             ProductDTO updatedProduct = productService.updateProductWithVariants(
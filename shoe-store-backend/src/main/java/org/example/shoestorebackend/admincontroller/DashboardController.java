@@ -3,10 +3,14 @@ package org.example.shoestorebackend.controller;
 import org.example.shoestorebackend.entity.DashboardStats;
 import org.example.shoestorebackend.entity.RevenueChartData;
 import org.example.shoestorebackend.service.DashboardService;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.Map;
+
 @RestController
 public class DashboardController {
     private final DashboardService dashboardService;
@@ -16,12 +20,19 @@ public class DashboardController {
     }
 
     @GetMapping("/api/admin/revenue-stats")
-    public DashboardStats getDashboardStats(@RequestParam int year, @RequestParam int month) {
-        return dashboardService.getDashboardStats(year, month);
+    public DashboardStats getDashboardStats(@RequestParam int year, @RequestParam int month,
+                                            @RequestParam(defaultValue = "5") int top) {
+        return dashboardService.getDashboardStats(year, month, top);
     }
 
     @GetMapping("/api/admin/revenue/chart")
     public RevenueChartData getRevenueChartData(@RequestParam int year) {
         return dashboardService.getRevenueChartData(year);
     }
+
+    @PostMapping("/api/admin/revenue/rollup/rebuild")
+    public ResponseEntity<Map<String, String>> rebuildSalesRollup() {
+        dashboardService.rebuildSalesRollup();
+        return ResponseEntity.ok(Map.of("message", "Đã tính lại bảng tổng hợp doanh thu"));
+    }
 }
\ No newline at end of file
@@ -1,5 +1,8 @@
 package org.example.shoestorebackend.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.shoestorebackend.dto.CartDeltaDTO;
 import org.example.shoestorebackend.dto.CartItemDTO;
 import org.example.shoestorebackend.dto.CartItemQuantityDTO;
 import org.example.shoestorebackend.dto.CartItemResponseDTO;
@@ -12,16 +15,23 @@ import org.example.shoestorebackend.repository.ProductVariantRepository;
 import org.example.shoestorebackend.repository.UserRepository;
 import org.example.shoestorebackend.security.CustomUserDetails;
 import org.example.shoestorebackend.service.CartService;
+import org.example.shoestorebackend.service.CartVersionService;
+import org.example.shoestorebackend.service.ProductVariantService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.Collections;
 import java.util.List;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/cart")
@@ -41,8 +51,20 @@ public class CartController {
     @Autowired
     private ProductVariantRepository productVariantRepository;
 
+    @Autowired
+    private ProductVariantService productVariantService;
+
+    @Autowired
+    private CartVersionService cartVersionService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // ?response=delta: trả về các dòng vừa đổi kèm phiên bản và tổng thay vì toàn bộ giỏ hàng
+    private static final String DELTA_RESPONSE = "delta";
+
     @GetMapping
-    public ResponseEntity<?> getCartItems(@AuthenticationPrincipal UserDetails userDetails) {
+    public ResponseEntity<?> getCartItems(@AuthenticationPrincipal UserDetails userDetails, WebRequest webRequest) {
         if (userDetails == null) {
             return ResponseEntity.status(401).body(Collections.emptyList());
         }
@@ -51,7 +73,27 @@ public class CartController {
         logger.info("Fetching cart items for user: " + userId);
 
         try {
-            return ResponseEntity.ok(cartService.getCartItemResponseDTOs(userId));
+            if (cartVersionService.isSingleInstance()) {
+                // Phiên bản đọc trước dữ liệu; client gửi lại ETag mà giỏ và sản phẩm chưa đổi thì trả 304, không đọc DB
+                String etag = "\"" + cartVersionService.currentVersion(userId) + "\"";
+                if (webRequest.checkNotModified(etag)) {
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+                }
+                return ResponseEntity.ok()
+                        .eTag(etag)
+                        .cacheControl(CacheControl.noCache().cachePrivate())
+                        .body(cartService.getCartItemResponseDTOs(userId));
+            }
+            // Nhiều instance: ETag theo nội dung đọc từ DB, 304 chỉ tiết kiệm phần gửi dữ liệu
+            List<CartItemResponseDTO> items = cartService.getCartItemResponseDTOs(userId);
+            String etag = contentETag(items);
+            if (webRequest.checkNotModified(etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+            return ResponseEntity.ok()
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .body(items);
         } catch (Exception e) {
             logger.severe("Error fetching cart items: " + e.getMessage());
             return ResponseEntity.status(500).body("Internal server error: " + e.getMessage());
@@ -62,7 +104,8 @@ public class CartController {
     @PostMapping
     public ResponseEntity<?> addToCart(
             @AuthenticationPrincipal UserDetails userDetails,
-            @RequestBody CartItemDTO cartItemDTO) {
+            @RequestBody CartItemDTO cartItemDTO,
+            @RequestParam(required = false) String response) {
         if (userDetails == null) {
             logger.severe("User not authenticated");
             return ResponseEntity.status(401).body("User not authenticated");
@@ -92,7 +135,7 @@ public class CartController {
                 return ResponseEntity.badRequest().body("Missing or invalid required fields: size, color, or quantity");
             }
 
-            ProductVariant variant = productVariantRepository.findByProductIdAndSizeSizeAndColorColor(
+            ProductVariant variant = productVariantService.findVariant(
                             productId, cartItemDTO.getSize(), cartItemDTO.getColor())
                     .orElseThrow(() -> new RuntimeException("Variant not found for product: " + productId +
                             ", size: " + cartItemDTO.getSize() + ", color: " + cartItemDTO.getColor()));
@@ -109,7 +152,7 @@ public class CartController {
 
             CartItem savedCartItem = cartService.addToCart(cartItem);
             logger.info("Cart item saved: " + savedCartItem);
-            return ResponseEntity.ok(cartService.getCartItemResponseDTOs(userId));
+            return cartResponse(userId, response, List.of(savedCartItem.getId()), List.of());
         } catch (IllegalArgumentException e) {
             logger.severe("Validation error: " + e.getMessage());
             return ResponseEntity.badRequest().body("Validation error: " + e.getMessage());
@@ -122,7 +165,8 @@ public class CartController {
     @PostMapping("/merge")
     public ResponseEntity<?> mergeCart(
             @AuthenticationPrincipal UserDetails userDetails,
-            @RequestBody List<CartItemDTO> localCartItems) {
+            @RequestBody List<CartItemDTO> localCartItems,
+            @RequestParam(required = false) String response) {
 
         if (userDetails == null) {
             return ResponseEntity.status(401).body("User not authenticated");
@@ -131,9 +175,9 @@ public class CartController {
         Long userId = customUserDetails.getId();
 
         try {
-            cartService.mergeCart(userId, localCartItems);
+            List<CartItem> mergedItems = cartService.mergeCart(userId, localCartItems);
             // Trả về giỏ hàng sau khi merge
-            return ResponseEntity.ok(cartService.getCartItemResponseDTOs(userId));
+            return cartResponse(userId, response, mergedItems.stream().map(CartItem::getId).distinct().collect(Collectors.toList()), List.of());
         } catch (Exception e) {
             logger.severe("Error merging cart: " + e.getMessage());
             return ResponseEntity.status(500).body("Internal server error: " + e.getMessage());
@@ -146,7 +190,8 @@ public class CartController {
     public ResponseEntity<?> updateQuantity(
             @AuthenticationPrincipal UserDetails userDetails,
             @PathVariable Long id,
-            @RequestBody CartItem cartItem) {
+            @RequestBody CartItem cartItem,
+            @RequestParam(required = false) String response) {
         if (userDetails == null) {
             return ResponseEntity.status(401).body("User not authenticated");
         }
@@ -156,7 +201,7 @@ public class CartController {
         try {
             CartItem updatedItem = cartService.updateQuantity(id, cartItem.getQuantity());
             logger.info("Updated cart item: " + updatedItem);
-            return ResponseEntity.ok(cartService.getCartItemResponseDTOs(userId));
+            return cartResponse(userId, response, List.of(updatedItem.getId()), List.of());
         } catch (IllegalArgumentException e) {
             logger.severe("Validation error: " + e.getMessage());
             return ResponseEntity.badRequest().body("Validation error: " + e.getMessage());
@@ -172,7 +217,8 @@ public class CartController {
             @PathVariable Long productId,
             @PathVariable String size,
             @PathVariable String color,
-            @RequestBody CartItemQuantityDTO quantityDTO) {
+            @RequestBody CartItemQuantityDTO quantityDTO,
+            @RequestParam(required = false) String response) {
 
         if (userDetails == null) {
             return ResponseEntity.status(401).body("User not authenticated");
@@ -181,7 +227,7 @@ public class CartController {
         Long userId = customUserDetails.getId();
 
         try {
-            ProductVariant variant = productVariantRepository.findByProductIdAndSizeSizeAndColorColor(
+            ProductVariant variant = productVariantService.findVariant(
                             productId, size, color)
                     .orElseThrow(() -> new RuntimeException("Variant not found for product: " + productId +
                             ", size: " + size + ", color: " + color));
@@ -197,7 +243,7 @@ public class CartController {
             }
 
             cartService.updateQuantity(existingItem.getId(), quantityDTO.getQuantity());
-            return ResponseEntity.ok(cartService.getCartItemResponseDTOs(userId));
+            return cartResponse(userId, response, List.of(existingItem.getId()), List.of());
         } catch (Exception e) {
             logger.severe("Error updating quantity by product and variant: " + e.getMessage());
             return ResponseEntity.status(500).body("Internal server error: " + e.getMessage());
@@ -248,7 +294,8 @@ public class CartController {
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deleteCartItem(
             @AuthenticationPrincipal UserDetails userDetails,
-            @PathVariable Long id) {
+            @PathVariable Long id,
+            @RequestParam(required = false) String response) {
         if (userDetails == null) {
             return ResponseEntity.status(401).body("User not authenticated");
         }
@@ -257,7 +304,7 @@ public class CartController {
 
         try {
             cartService.deleteCartItem(id);
-            return ResponseEntity.ok(cartService.getCartItemResponseDTOs(userId));
+            return cartResponse(userId, response, List.of(), List.of(id));
         } catch (Exception e) {
             logger.severe("Error deleting cart item: " + e.getMessage());
             return ResponseEntity.status(500).body("Internal server error: " + e.getMessage());
@@ -270,7 +317,8 @@ public class CartController {
             @PathVariable Long productId,
             @PathVariable String size,
             @PathVariable String color,
-            @RequestBody CartItemDTO updatedItem) {
+            @RequestBody CartItemDTO updatedItem,
+            @RequestParam(required = false) String response) {
         if (userDetails == null) {
             return ResponseEntity.status(401).body("User not authenticated");
         }
@@ -278,7 +326,7 @@ public class CartController {
         Long userId = customUserDetails.getId();
 
         try {
-            ProductVariant oldVariant = productVariantRepository.findByProductIdAndSizeSizeAndColorColor(
+            ProductVariant oldVariant = productVariantService.findVariant(
                             productId, size, color)
                     .orElseThrow(() -> new RuntimeException("Old variant not found"));
 
@@ -289,14 +337,14 @@ public class CartController {
                     .orElseThrow(() -> new RuntimeException("Cart item not found"));
 
             // Kiểm tra variant mới
-            ProductVariant newVariant = productVariantRepository.findByProductIdAndSizeSizeAndColorColor(
+            ProductVariant newVariant = productVariantService.findVariant(
                             productId, updatedItem.getSize(), updatedItem.getColor())
                     .orElseThrow(() -> new RuntimeException("New variant not found"));
 
             existingItem.setVariant(newVariant);
             cartService.saveCartItem(existingItem); // Lưu thay đổi
 
-            return ResponseEntity.ok(cartService.getCartItemResponseDTOs(userId));
+            return cartResponse(userId, response, List.of(existingItem.getId()), List.of());
         } catch (Exception e) {
             logger.severe("Error updating cart item details: " + e.getMessage());
             return ResponseEntity.status(500).body("Internal server error: " + e.getMessage());
@@ -309,7 +357,8 @@ public class CartController {
             @AuthenticationPrincipal UserDetails userDetails,
             @PathVariable Long productId,
             @PathVariable String size,
-            @PathVariable String color) {
+            @PathVariable String color,
+            @RequestParam(required = false) String response) {
         if (userDetails == null) {
             return ResponseEntity.status(401).body("User not authenticated");
         }
@@ -317,7 +366,7 @@ public class CartController {
         Long userId = customUserDetails.getId();
 
         try {
-            ProductVariant variant = productVariantRepository.findByProductIdAndSizeSizeAndColorColor(
+            ProductVariant variant = productVariantService.findVariant(
                             productId, size, color)
                     .orElseThrow(() -> new RuntimeException("Variant not found for product: " + productId +
                             ", size: " + size + ", color: " + color));
@@ -329,7 +378,7 @@ public class CartController {
                     .orElseThrow(() -> new RuntimeException("Cart item not found for product: " + productId + ", variant: " + variant.getId()));
 
             cartService.deleteCartItem(existingItem.getId());
-            return ResponseEntity.ok(cartService.getCartItemResponseDTOs(userId));
+            return cartResponse(userId, response, List.of(), List.of(existingItem.getId()));
         } catch (Exception e) {
             logger.severe("Error deleting cart item by product and variant: " + e.getMessage());
             return ResponseEntity.status(500).body("Internal server error: " + e.getMessage());
@@ -354,4 +403,29 @@ public class CartController {
             return ResponseEntity.status(500).body("Internal server error: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    // Response sau khi thay đổi giỏ hàng: mặc định toàn bộ giỏ, response=delta thì chỉ các dòng thay đổi
+    private ResponseEntity<?> cartResponse(Long userId, String response, List<Long> changedItemIds,
+                                           List<Long> removedItemIds) throws JsonProcessingException {
+        if (DELTA_RESPONSE.equalsIgnoreCase(response)) {
+            CartDeltaDTO delta = cartService.getCartDelta(userId, changedItemIds, removedItemIds);
+            if (!cartVersionService.isSingleInstance()) {
+                // Delta không chứa toàn bộ giỏ nên không tính được ETag theo nội dung
+                return ResponseEntity.ok().body(delta);
+            }
+            return ResponseEntity.ok().eTag(delta.getVersion()).body(delta);
+        }
+        if (cartVersionService.isSingleInstance()) {
+            return ResponseEntity.ok()
+                    .eTag(cartVersionService.currentVersion(userId))
+                    .body(cartService.getCartItemResponseDTOs(userId));
+        }
+        // Cùng cách tính với GET để client dùng lại được ETag này ở lần GET sau
+        List<CartItemResponseDTO> items = cartService.getCartItemResponseDTOs(userId);
+        return ResponseEntity.ok().eTag(contentETag(items)).body(items);
+    }
+
+    private String contentETag(List<CartItemResponseDTO> items) throws JsonProcessingException {
+        return "\"" + DigestUtils.md5DigestAsHex(objectMapper.writeValueAsBytes(items)) + "\"";
+    }
+}
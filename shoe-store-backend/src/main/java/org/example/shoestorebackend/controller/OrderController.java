@@ -4,8 +4,8 @@ import org.example.shoestorebackend.dto.OrderDTO;
 import org.example.shoestorebackend.dto.OrderItemDTO;
 import org.example.shoestorebackend.dto.UserDTO;
 import org.example.shoestorebackend.entity.*;
-import org.example.shoestorebackend.repository.ProductVariantRepository;
 import org.example.shoestorebackend.service.OrderService;
+import org.example.shoestorebackend.service.ProductVariantService;
 import org.example.shoestorebackend.util.JwtUtil;
 import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,6 +15,7 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 import jakarta.servlet.http.HttpServletRequest;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -29,7 +30,7 @@ public class OrderController {
     private JwtUtil jwtUtil;
 
     @Autowired
-    private ProductVariantRepository productVariantRepository;
+    private ProductVariantService productVariantService;
 
     @PostMapping
     public ResponseEntity<?> createOrder(@RequestBody Map<String, Object> request, Authentication authentication, HttpServletRequest httpRequest) {
@@ -45,7 +46,7 @@ public class OrderController {
                 return ResponseEntity.status(401).body("{\"error\": \"Unauthorized\", \"message\": \"Token không hợp lệ\"}");
             }
             String token = authHeader.substring(7);
-            Long userId = jwtUtil.extractUserId(token);
+            Long userId = jwtUtil.getClaims(httpRequest, token).getUserId();
 
             // Kiểm tra cartItems
             Object cartItemsObj = request.get("cartItems");
@@ -65,7 +66,10 @@ public class OrderController {
             String paymentMethod = paymentMethodObj != null ? paymentMethodObj.toString() : "COD"; // Mặc định là COD nếu không có
 
             // Chuyển đổi cartItemsData thành List<CartItem>
-            List<CartItem> cartItems = cartItemsData.stream().map(item -> {
+            // Đọc toàn bộ dòng trước, sau đó tìm variant cho cả giỏ bằng một truy vấn
+            List<CartItem> cartItems = new ArrayList<>();
+            List<ProductVariantService.VariantKey> variantKeys = new ArrayList<>();
+            for (Map<String, Object> item : cartItemsData) {
                 CartItem cartItem = new CartItem();
 
                 Object idObj = item.get("id");
@@ -113,12 +117,7 @@ public class OrderController {
                 }
                 String color = colorObj.toString();
 
-                // Tìm ProductVariant
-                ProductVariant variant = productVariantRepository.findByProductIdAndSizeSizeAndColorColor(
-                                productId, size, color)
-                        .orElseThrow(() -> new RuntimeException("Không tìm thấy variant cho sản phẩm: " + productId +
-                                ", size: " + size + ", color: " + color));
-                cartItem.setVariant(variant);
+                variantKeys.add(new ProductVariantService.VariantKey(productId, size, color));
 
                 Object quantityObj = item.get("quantity");
                 if (quantityObj == null) {
@@ -126,8 +125,19 @@ public class OrderController {
                 }
                 cartItem.setQuantity(Integer.valueOf(quantityObj.toString()));
 
-                return cartItem;
-            }).toList();
+                cartItems.add(cartItem);
+            }
+
+            Map<ProductVariantService.VariantKey, ProductVariant> variants = productVariantService.resolveVariants(variantKeys);
+            for (int i = 0; i < cartItems.size(); i++) {
+                ProductVariantService.VariantKey key = variantKeys.get(i);
+                ProductVariant variant = variants.get(key);
+                if (variant == null) {
+                    throw new RuntimeException("Không tìm thấy variant cho sản phẩm: " + key.getProductId() +
+                            ", size: " + key.getSize() + ", color: " + key.getColor());
+                }
+                cartItems.get(i).setVariant(variant);
+            }
 
             Order order = orderService.createOrder(userId, cartItems, discountCodeId, orderNote, paymentMethod);
 
@@ -143,14 +153,14 @@ public class OrderController {
 
     @GetMapping
     @Transactional(readOnly = true)
-    public ResponseEntity<?> getOrdersByUser(@RequestHeader("Authorization") String authorizationHeader) {
+    public ResponseEntity<?> getOrdersByUser(@RequestHeader("Authorization") String authorizationHeader, HttpServletRequest httpRequest) {
         try {
             if (authorizationHeader == null || !authorizationHeader.startsWith("Bearer ")) {
                 return ResponseEntity.status(401).body("{\"error\": \"Unauthorized\", \"message\": \"Token không hợp lệ\"}");
             }
 
             String token = authorizationHeader.replace("Bearer ", "");
-            Long userId = jwtUtil.extractUserId(token);
+            Long userId = jwtUtil.getClaims(httpRequest, token).getUserId();
 
             List<Order> orders = orderService.getOrdersByUserId(userId);
             List<OrderDTO> orderDTOs = orders.stream().map(this::convertToOrderDTO).collect(Collectors.toList());
@@ -173,7 +183,7 @@ public class OrderController {
             }
 
             String token = authHeader.substring(7);
-            Long userId = jwtUtil.extractUserId(token);
+            Long userId = jwtUtil.getClaims(httpRequest, token).getUserId();
             String statusStr = request.get("status");
             if (statusStr == null) {
                 return ResponseEntity.status(400).body("{\"error\": \"Bad Request\", \"message\": \"Trạng thái không được để trống\"}");
@@ -256,10 +266,10 @@ public class OrderController {
 
     @GetMapping("/{id}")
     @Transactional(readOnly = true)
-    public ResponseEntity<?> getOrderById(@PathVariable Long id, @RequestHeader("Authorization") String authorizationHeader) {
+    public ResponseEntity<?> getOrderById(@PathVariable Long id, @RequestHeader("Authorization") String authorizationHeader, HttpServletRequest httpRequest) {
         try {
             String token = authorizationHeader.replace("Bearer ", "");
-            Long userId = jwtUtil.extractUserId(token);
+            Long userId = jwtUtil.getClaims(httpRequest, token).getUserId();
             Order order = orderService.getOrderByIdAndUserId(id, userId);
             OrderDTO orderDTO = convertToOrderDTO(order);
             return ResponseEntity.ok(orderDTO);
@@ -1,14 +1,18 @@
 package org.example.shoestorebackend.controller;
 
+import org.example.shoestorebackend.dto.CursorPageDTO;
 import org.example.shoestorebackend.dto.ProductColorDTO;
 import org.example.shoestorebackend.dto.ProductDTO;
 import org.example.shoestorebackend.dto.ProductSizeDTO;
+import org.example.shoestorebackend.dto.ProductSuggestionDTO;
 import org.example.shoestorebackend.dto.ProductVariantDTO;
 import org.example.shoestorebackend.entity.Product;
+import org.example.shoestorebackend.entity.ProductFeature;
 import org.example.shoestorebackend.service.ProductColorService;
 import org.example.shoestorebackend.service.ProductFeatureService;
 import org.example.shoestorebackend.service.ProductService;
 import org.example.shoestorebackend.service.ProductSizeService;
+import org.example.shoestorebackend.service.ProductSuggestionService;
 import org.example.shoestorebackend.service.ProductVariantService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -21,6 +25,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.util.UriUtils;
 
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -48,11 +53,15 @@ public class ProductController {
     @Autowired
     private ProductVariantService productVariantService;
 
+    @Autowired
+    private ProductSuggestionService productSuggestionService;
+
     @GetMapping
     public ResponseEntity<Object> getAllProducts(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "12") int size,
-            @RequestParam(required = false) String sort
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String after
     ) {
         try {
             logger.info("Fetching all products - page: " + page + ", size: " + size + ", sort: " + sort);
@@ -65,6 +74,12 @@ public class ProductController {
             else if ("new".equalsIgnoreCase(sort)) sortOption = Sort.by("createdAt").descending();
             else if ("best-seller".equalsIgnoreCase(sort)) sortOption = Sort.by("sold").descending();
 
+            // Có tham số after (rỗng cho trang đầu) thì dùng phân trang keyset
+            if (after != null) {
+                return ResponseEntity.ok(toResponsePage(
+                        productService.getProductsByCursor(null, null, sortOption, after, size)));
+            }
+
             Pageable pageable = PageRequest.of(page, size, sortOption);
             Page<ProductDTO> productPage = productService.getAllProducts(pageable);
 
@@ -73,17 +88,11 @@ public class ProductController {
                         .body(Map.of("message", "No products found"));
             }
 
-            Page<Map<String, Object>> responsePage = productPage.map(product -> {
-                Map<String, Object> map = new HashMap<>();
-                map.put("product", product);
-                map.put("features", productFeatureService.getFeaturesByProductId(product.getId()));
-                map.put("sizes", product.getSizes());
-                map.put("colors", product.getColors());
-                map.put("variants", product.getVariants());
-                return map;
-            });
+            Page<Map<String, Object>> responsePage = toResponsePage(productPage);
 
             return ResponseEntity.ok(responsePage);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             logger.severe("Error fetching all products: " + e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -120,7 +129,8 @@ public class ProductController {
             @RequestParam(required = false) String gender,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "12") int size,
-            @RequestParam(required = false) String sort
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String after
     ) {
         try {
             categoryName = UriUtils.decode(categoryName, StandardCharsets.UTF_8).trim().replaceAll("[\\n\\r]", "");
@@ -143,6 +153,11 @@ public class ProductController {
             else if ("new".equalsIgnoreCase(sort)) sortOption = Sort.by("createdAt").descending();
             else if ("best-seller".equalsIgnoreCase(sort)) sortOption = Sort.by("sold").descending();
 
+            if (after != null) {
+                return ResponseEntity.ok(toResponsePage(
+                        productService.getProductsByCursor(categoryName, genderEnum, sortOption, after, size)));
+            }
+
             Pageable pageable = PageRequest.of(page, size, sortOption);
 
             Page<ProductDTO> productPage;
@@ -152,23 +167,25 @@ public class ProductController {
                 productPage = productService.getProductsByCategoryPaging(categoryName, genderEnum, pageable);
             }
 
-            Page<Map<String, Object>> responsePage = productPage.map(product -> {
-                Map<String, Object> map = new HashMap<>();
-                map.put("product", product);
-                map.put("features", productFeatureService.getFeaturesByProductId(product.getId()));
-                map.put("sizes", product.getSizes());
-                map.put("colors", product.getColors());
-                map.put("variants", product.getVariants());
-                return map;
-            });
+            Page<Map<String, Object>> responsePage = toResponsePage(productPage);
 
             return ResponseEntity.ok(responsePage);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             logger.severe("Error fetching paginated products: " + e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Server error: " + e.getMessage()));
         }
     }
 
+    @GetMapping("/suggest")
+    public ResponseEntity<List<ProductSuggestionDTO>> suggest(
+            @RequestParam("q") String query,
+            @RequestParam(defaultValue = "10") int limit
+    ) {
+        return ResponseEntity.ok(productSuggestionService.suggest(query, Math.max(limit, 0)));
+    }
+
     @GetMapping("/search")
     public ResponseEntity<Object> searchProducts(
             @RequestParam("q") String keyword,
@@ -181,7 +198,7 @@ public class ProductController {
                 return ResponseEntity.badRequest().body(Map.of("error", "Keyword is required"));
             }
 
-            Sort sortOption = Sort.by("id").descending(); // Mặc định là mới nhất
+            Sort sortOption = Sort.unsorted(); // Mặc định sắp xếp theo độ liên quan
             if ("priceAsc".equalsIgnoreCase(sort)) sortOption = Sort.by("price").ascending();
             else if ("priceDesc".equalsIgnoreCase(sort)) sortOption = Sort.by("price").descending();
             else if ("alphaAsc".equalsIgnoreCase(sort)) sortOption = Sort.by("name").ascending();
@@ -193,15 +210,7 @@ public class ProductController {
 
             Page<ProductDTO> productPage = productService.searchProducts(keyword.trim(), pageable);
 
-            Page<Map<String, Object>> responsePage = productPage.map(product -> {
-                Map<String, Object> map = new HashMap<>();
-                map.put("product", product);
-                map.put("features", productFeatureService.getFeaturesByProductId(product.getId()));
-                map.put("sizes", product.getSizes());
-                map.put("colors", product.getColors());
-                map.put("variants", product.getVariants());
-                return map;
-            });
+            Page<Map<String, Object>> responsePage = toResponsePage(productPage);
 
             return ResponseEntity.ok(responsePage);
         } catch (Exception e) {
@@ -210,4 +219,32 @@ public class ProductController {
                     .body(Map.of("error", "Server error: " + e.getMessage()));
         }
     }
-}
\ No newline at end of file
+
+    // Gắn features cho cả trang sản phẩm bằng một truy vấn thay vì mỗi sản phẩm một truy vấn
+    private Page<Map<String, Object>> toResponsePage(Page<ProductDTO> productPage) {
+        Map<Long, List<ProductFeature>> featuresByProduct = loadFeatures(productPage.getContent());
+        return productPage.map(product -> toResponseItem(product, featuresByProduct));
+    }
+
+    private CursorPageDTO<Map<String, Object>> toResponsePage(CursorPageDTO<ProductDTO> productPage) {
+        Map<Long, List<ProductFeature>> featuresByProduct = loadFeatures(productPage.getContent());
+        return productPage.map(product -> toResponseItem(product, featuresByProduct));
+    }
+
+    private Map<Long, List<ProductFeature>> loadFeatures(List<ProductDTO> products) {
+        List<Long> productIds = products.stream()
+                .map(ProductDTO::getId)
+                .collect(Collectors.toList());
+        return productFeatureService.getFeaturesByProductIds(productIds);
+    }
+
+    private Map<String, Object> toResponseItem(ProductDTO product, Map<Long, List<ProductFeature>> featuresByProduct) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("product", product);
+        map.put("features", featuresByProduct.getOrDefault(product.getId(), new ArrayList<>()));
+        map.put("sizes", product.getSizes());
+        map.put("colors", product.getColors());
+        map.put("variants", product.getVariants());
+        return map;
+    }
+}
@@ -0,0 +1,38 @@
+package org.example.shoestorebackend.dto;
+
+import lombok.Data;
+import org.example.shoestorebackend.entity.Order;
+
+import java.time.LocalDateTime;
+
+// Một dòng trong bảng đơn hàng của admin, chỉ gồm các cột màn hình danh sách cần
+@Data
+public class AdminOrderSummaryDTO {
+    private Long id;
+    private Long userId;
+    private String customerName;
+    private String customerEmail;
+    private String customerPhone;
+    private Double totalAmount;
+    private Double discountAmount;
+    private String paymentMethod;
+    private String status;
+    private LocalDateTime createdAt;
+    private long itemCount;
+
+    public AdminOrderSummaryDTO(Long id, Long userId, String firstName, String lastName, String customerEmail,
+                                String customerPhone, Double totalAmount, Double discountAmount, String paymentMethod,
+                                Order.Status status, LocalDateTime createdAt, Long itemCount) {
+        this.id = id;
+        this.userId = userId;
+        this.customerName = firstName + " " + lastName;
+        this.customerEmail = customerEmail;
+        this.customerPhone = customerPhone;
+        this.totalAmount = totalAmount;
+        this.discountAmount = discountAmount;
+        this.paymentMethod = paymentMethod;
+        this.status = status != null ? status.name() : null;
+        this.createdAt = createdAt;
+        this.itemCount = itemCount != null ? itemCount : 0;
+    }
+}
@@ -0,0 +1,17 @@
+package org.example.shoestorebackend.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Kết quả thay đổi giỏ hàng dạng rút gọn: chỉ các dòng vừa đổi, kèm phiên bản và tổng của cả giỏ
+@Data
+public class CartDeltaDTO {
+    private String version;
+    private List<CartItemResponseDTO> changedItems = new ArrayList<>();
+    private List<Long> removedItemIds = new ArrayList<>();
+    private long itemCount;
+    private long totalQuantity;
+    private double totalAmount;
+}
@@ -0,0 +1,27 @@
+package org.example.shoestorebackend.dto;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Một trang của phân trang keyset: không có tổng số phần tử, chỉ có cursor để lấy trang tiếp theo
+@Data
+public class CursorPageDTO<T> {
+    private List<T> content;
+    private int size;
+    private boolean hasNext;
+    private String nextCursor;
+
+    public CursorPageDTO(List<T> content, int size, boolean hasNext, String nextCursor) {
+        this.content = content;
+        this.size = size;
+        this.hasNext = hasNext;
+        this.nextCursor = nextCursor;
+    }
+
+    public <R> CursorPageDTO<R> map(Function<T, R> mapper) {
+        return new CursorPageDTO<>(content.stream().map(mapper).collect(Collectors.toList()), size, hasNext, nextCursor);
+    }
+}
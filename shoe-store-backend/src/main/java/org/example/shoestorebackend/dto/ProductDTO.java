@@ -5,6 +5,7 @@ import org.example.shoestorebackend.entity.Product;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @Data
 public class ProductDTO {
@@ -21,6 +22,8 @@ public class ProductDTO {
     private List<ProductSizeDTO> sizes;
     private List<ProductColorDTO> colors;
     private List<ProductVariantDTO> variants;
+    // URL các bản resize theo loại (thumbnail, listing, detail); rỗng khi ảnh chưa xử lý xong
+    private Map<String, String> images;
 
     public Long getId() {
         return id;
@@ -125,4 +128,12 @@ public class ProductDTO {
     public void setVariants(List<ProductVariantDTO> variants) {
         this.variants = variants;
     }
-}
\ No newline at end of file
+
+    public Map<String, String> getImages() {
+        return images;
+    }
+
+    public void setImages(Map<String, String> images) {
+        this.images = images;
+    }
+}
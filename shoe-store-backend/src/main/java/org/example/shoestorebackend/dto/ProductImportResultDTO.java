@@ -0,0 +1,23 @@
+package org.example.shoestorebackend.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Kết quả import sản phẩm hàng loạt, kèm danh sách dòng lỗi (giới hạn số dòng trả về)
+@Data
+public class ProductImportResultDTO {
+    private int totalRows;
+    private int importedProducts;
+    private int importedVariants;
+    private int errorCount;
+    private List<RowError> errors = new ArrayList<>();
+
+    @Data
+    public static class RowError {
+        private final int line;
+        private final String model;
+        private final String message;
+    }
+}
@@ -0,0 +1,49 @@
+package org.example.shoestorebackend.dto;
+
+public class ProductSuggestionDTO {
+    private String text;
+    private String type; // product, model hoặc category
+    private Long productId;
+    private long popularity;
+
+    public ProductSuggestionDTO() {}
+
+    public ProductSuggestionDTO(String text, String type, Long productId, long popularity) {
+        this.text = text;
+        this.type = type;
+        this.productId = productId;
+        this.popularity = popularity;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public long getPopularity() {
+        return popularity;
+    }
+
+    public void setPopularity(long popularity) {
+        this.popularity = popularity;
+    }
+}
@@ -0,0 +1,18 @@
+package org.example.shoestorebackend.dto;
+
+import lombok.Data;
+
+@Data
+public class SalesBreakdownDTO {
+    private String value;
+    private double revenue;
+    private long units;
+    private long orderCount;
+
+    public SalesBreakdownDTO(String value, Double revenue, Long units, Long orderCount) {
+        this.value = value;
+        this.revenue = revenue != null ? revenue : 0;
+        this.units = units != null ? units : 0;
+        this.orderCount = orderCount != null ? orderCount : 0;
+    }
+}
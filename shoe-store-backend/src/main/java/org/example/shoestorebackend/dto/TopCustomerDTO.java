@@ -0,0 +1,20 @@
+package org.example.shoestorebackend.dto;
+
+import lombok.Data;
+
+@Data
+public class TopCustomerDTO {
+    private Long userId;
+    private String name;
+    private String email;
+    private long orderCount;
+    private double revenue;
+
+    public TopCustomerDTO(Long userId, String firstName, String lastName, String email, Long orderCount, Double revenue) {
+        this.userId = userId;
+        this.name = firstName + " " + lastName;
+        this.email = email;
+        this.orderCount = orderCount != null ? orderCount : 0;
+        this.revenue = revenue != null ? revenue : 0;
+    }
+}
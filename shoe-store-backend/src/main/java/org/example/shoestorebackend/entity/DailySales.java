@@ -0,0 +1,32 @@
+package org.example.shoestorebackend.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+// Số liệu bán hàng tổng hợp theo ngày tạo đơn, được cập nhật dần khi đơn đổi trạng thái
+@Entity
+@Table(name = "daily_sales")
+@Data
+public class DailySales {
+    @Id
+    @Column(name = "sales_date")
+    private LocalDate salesDate;
+
+    // Doanh thu thực (tổng tiền trừ giảm giá) của các đơn đã giao
+    @Column(nullable = false)
+    private Double revenue;
+
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount;
+
+    @Column(nullable = false)
+    private Long units;
+
+    @Column(name = "discount_total", nullable = false)
+    private Double discountTotal;
+
+    @Column(name = "cancelled_count", nullable = false)
+    private Long cancelledCount;
+}
@@ -0,0 +1,32 @@
+package org.example.shoestorebackend.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+// Doanh thu theo ngày tách theo danh mục / giới tính, tính trên giá bán từng sản phẩm (chưa phân bổ giảm giá)
+@Entity
+@Table(name = "daily_sales_breakdown")
+@Data
+public class DailySalesBreakdown {
+    @EmbeddedId
+    private DailySalesBreakdownId id;
+
+    @Column(nullable = false)
+    private Double revenue;
+
+    @Column(nullable = false)
+    private Long units;
+
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount;
+
+    public DailySalesBreakdown() {
+    }
+
+    public DailySalesBreakdown(DailySalesBreakdownId id) {
+        this.id = id;
+        this.revenue = 0.0;
+        this.units = 0L;
+        this.orderCount = 0L;
+    }
+}
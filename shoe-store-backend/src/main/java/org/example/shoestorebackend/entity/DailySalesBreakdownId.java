@@ -0,0 +1,31 @@
+package org.example.shoestorebackend.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Embeddable
+@Data
+public class DailySalesBreakdownId implements Serializable {
+    @Column(name = "sales_date")
+    private LocalDate salesDate;
+
+    // "category" hoặc "gender"
+    @Column(name = "dimension")
+    private String dimension;
+
+    @Column(name = "dimension_value")
+    private String dimensionValue;
+
+    public DailySalesBreakdownId() {
+    }
+
+    public DailySalesBreakdownId(LocalDate salesDate, String dimension, String dimensionValue) {
+        this.salesDate = salesDate;
+        this.dimension = dimension;
+        this.dimensionValue = dimensionValue;
+    }
+}
@@ -1,9 +1,19 @@
 package org.example.shoestorebackend.entity;
 
+import org.example.shoestorebackend.dto.SalesBreakdownDTO;
+import org.example.shoestorebackend.dto.TopCustomerDTO;
+
+import java.util.ArrayList;
+import java.util.List;
+
 public class DashboardStats {
     private double totalRevenue;
     private long orderCount;
     private String topCustomerName;
+    private List<TopCustomerDTO> topCustomersByOrders = new ArrayList<>();
+    private List<TopCustomerDTO> topCustomersByRevenue = new ArrayList<>();
+    private List<SalesBreakdownDTO> categoryBreakdown = new ArrayList<>();
+    private List<SalesBreakdownDTO> genderBreakdown = new ArrayList<>();
 
     public DashboardStats(double totalRevenue, long orderCount, String topCustomerName) {
         this.totalRevenue = totalRevenue;
@@ -15,9 +25,17 @@ public class DashboardStats {
     public double getTotalRevenue() { return totalRevenue; }
     public long getOrderCount() { return orderCount; }
     public String getTopCustomerName() { return topCustomerName; }
+    public List<TopCustomerDTO> getTopCustomersByOrders() { return topCustomersByOrders; }
+    public List<TopCustomerDTO> getTopCustomersByRevenue() { return topCustomersByRevenue; }
+    public List<SalesBreakdownDTO> getCategoryBreakdown() { return categoryBreakdown; }
+    public List<SalesBreakdownDTO> getGenderBreakdown() { return genderBreakdown; }
 
     // Setters (nếu cần)
     public void setTotalRevenue(double totalRevenue) { this.totalRevenue = totalRevenue; }
     public void setOrderCount(long orderCount) { this.orderCount = orderCount; }
     public void setTopCustomerName(String topCustomerName) { this.topCustomerName = topCustomerName; }
+    public void setTopCustomersByOrders(List<TopCustomerDTO> topCustomersByOrders) { this.topCustomersByOrders = topCustomersByOrders; }
+    public void setTopCustomersByRevenue(List<TopCustomerDTO> topCustomersByRevenue) { this.topCustomersByRevenue = topCustomersByRevenue; }
+    public void setCategoryBreakdown(List<SalesBreakdownDTO> categoryBreakdown) { this.categoryBreakdown = categoryBreakdown; }
+    public void setGenderBreakdown(List<SalesBreakdownDTO> genderBreakdown) { this.genderBreakdown = genderBreakdown; }
 }
@@ -8,8 +8,12 @@ import lombok.Data;
 @Table(name = "order_items")
 @Data
 public class OrderItem {
+    // Dùng bảng sinh id cấp phát theo khối thay cho IDENTITY để Hibernate có thể gom INSERT thành batch
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "order_item_id_gen")
+    @TableGenerator(name = "order_item_id_gen", table = "id_generators",
+            pkColumnName = "sequence_name", valueColumnName = "next_val",
+            pkColumnValue = "order_items", allocationSize = 50)
     private Long id;
 
     @ManyToOne
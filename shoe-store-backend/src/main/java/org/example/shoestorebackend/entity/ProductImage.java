@@ -0,0 +1,50 @@
+package org.example.shoestorebackend.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+// Ảnh đã resize từ ảnh gốc của sản phẩm (thumbnail, listing, detail)
+@Entity
+@Table(name = "product_images", uniqueConstraints = @UniqueConstraint(columnNames = {"product_id", "variant"}))
+@Data
+@EqualsAndHashCode(exclude = "product")
+@ToString(exclude = "product")
+public class ProductImage {
+    public static final String THUMBNAIL = "thumbnail";
+    public static final String LISTING = "listing";
+    public static final String DETAIL = "detail";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "product_id", nullable = false)
+    private Product product;
+
+    @Column(nullable = false, length = 16)
+    private String variant;
+
+    // URL ảnh gốc sinh ra bản resize này; ảnh sản phẩm đổi thì bản cũ không còn được dùng
+    @Column(name = "source_url", nullable = false)
+    private String sourceUrl;
+
+    @Column(nullable = false)
+    private String url;
+
+    private Integer width;
+
+    private Integer height;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
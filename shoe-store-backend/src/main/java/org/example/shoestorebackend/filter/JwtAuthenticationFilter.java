@@ -6,11 +6,13 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.example.shoestorebackend.security.CustomUserDetails;
 import org.example.shoestorebackend.service.CustomUserDetailsService;
+import org.example.shoestorebackend.service.UserStatusService;
+import org.example.shoestorebackend.util.JwtClaims;
 import org.example.shoestorebackend.util.JwtUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -26,33 +28,50 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private CustomUserDetailsService userDetailsService;
 
+    @Autowired
+    private UserStatusService userStatusService;
+
+    // Bật thì principal được dựng từ claims của token, chỉ kiểm tra trạng thái bị chặn qua cache
+    @Value("${jwt.stateless-auth:true}")
+    private boolean statelessAuth;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
         String authHeader = request.getHeader("Authorization");
-        String token = null;
-        String email = null;
+        JwtClaims claims = null;
 
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            token = authHeader.substring(7);
-            email = jwtUtil.extractEmail(token);
+            // Xác thực token một lần, controller lấy lại claims từ attribute của request
+            claims = jwtUtil.parseToken(authHeader.substring(7));
+            if (claims != null) {
+                request.setAttribute(JwtClaims.REQUEST_ATTRIBUTE, claims);
+            }
         }
 
-        if (email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            CustomUserDetails userDetails = (CustomUserDetails) userDetailsService.loadUserByUsername(email);
-            if (jwtUtil.validateToken(token)) {
+        if (claims != null && claims.getEmail() != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            CustomUserDetails userDetails = null;
+            if (statelessAuth) {
+                if (claims.getUserId() != null && claims.getRole() != null && !userStatusService.isBlocked(claims.getUserId())) {
+                    userDetails = new CustomUserDetails(claims.getUserId(), claims.getEmail(), claims.getRole());
+                }
+            } else {
+                CustomUserDetails loaded = (CustomUserDetails) userDetailsService.loadUserByUsername(claims.getEmail());
                 // Kiểm tra role từ token và userDetails để đảm bảo khớp nhau
-                String roleFromToken = jwtUtil.extractRole(token);
-                if (roleFromToken != null && roleFromToken.equals(userDetails.getRole())) {
-                    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            userDetails,
-                            null,
-                            userDetails.getAuthorities()
-                    );
-                    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
+                if (claims.getRole() != null && claims.getRole().equals(loaded.getRole())) {
+                    userDetails = loaded;
                 }
             }
+
+            if (userDetails != null) {
+                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                        userDetails,
+                        null,
+                        userDetails.getAuthorities()
+                );
+                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                SecurityContextHolder.getContext().setAuthentication(authToken);
+            }
         }
         filterChain.doFilter(request, response);
     }
@@ -5,12 +5,57 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
-public interface CartItemRepository extends JpaRepository<CartItem, Long> {
+public interface CartItemRepository extends JpaRepository<CartItem, Long>, CartItemRepositoryCustom {
     List<CartItem> findByUserId(Long userId);
 
+    // Giỏ hàng kèm user, sản phẩm, variant, size, màu trong một truy vấn
+    @Query("SELECT ci FROM CartItem ci " +
+            "JOIN FETCH ci.user " +
+            "JOIN FETCH ci.product " +
+            "JOIN FETCH ci.variant v " +
+            "JOIN FETCH v.size " +
+            "JOIN FETCH v.color " +
+            "WHERE ci.user.id = :userId " +
+            "ORDER BY ci.id")
+    List<CartItem> findByUserIdWithDetails(@Param("userId") Long userId);
+
+    @Query("SELECT ci FROM CartItem ci " +
+            "JOIN FETCH ci.user " +
+            "JOIN FETCH ci.product " +
+            "JOIN FETCH ci.variant v " +
+            "JOIN FETCH v.size " +
+            "JOIN FETCH v.color " +
+            "WHERE ci.user.id = :userId AND ci.id IN :ids " +
+            "ORDER BY ci.id")
+    List<CartItem> findByUserIdAndIdInWithDetails(@Param("userId") Long userId, @Param("ids") Collection<Long> ids);
+
+    @Query("SELECT ci FROM CartItem ci " +
+            "JOIN FETCH ci.user " +
+            "JOIN FETCH ci.product " +
+            "JOIN FETCH ci.variant v " +
+            "JOIN FETCH v.size " +
+            "JOIN FETCH v.color " +
+            "WHERE ci.user.id = :userId AND v.id IN :variantIds " +
+            "ORDER BY ci.id")
+    List<CartItem> findByUserIdAndVariantIdInWithDetails(@Param("userId") Long userId,
+                                                         @Param("variantIds") Collection<Long> variantIds);
+
+    @Query("SELECT COUNT(ci) AS itemCount, " +
+            "COALESCE(SUM(ci.quantity), 0L) AS totalQuantity, " +
+            "COALESCE(SUM(ci.quantity * ci.product.price), 0.0) AS totalAmount " +
+            "FROM CartItem ci WHERE ci.user.id = :userId")
+    CartTotals summarizeByUserId(@Param("userId") Long userId);
+
     Optional<CartItem> findByUserIdAndProductIdAndVariantId(Long userId, Long productId, Long variantId);
     void deleteByUserId(Long userId);
+
+    interface CartTotals {
+        Long getItemCount();
+        Long getTotalQuantity();
+        Double getTotalAmount();
+    }
 }
\ No newline at end of file
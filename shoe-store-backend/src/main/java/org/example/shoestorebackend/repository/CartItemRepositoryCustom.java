@@ -0,0 +1,8 @@
+package org.example.shoestorebackend.repository;
+
+import java.util.Map;
+
+public interface CartItemRepositoryCustom {
+    // Cộng số lượng vào giỏ hàng của user cho nhiều variant trong một JDBC batch, dòng chưa có thì thêm mới
+    void addQuantitiesBatch(Long userId, Map<Long, Integer> quantitiesByVariantId);
+}
@@ -0,0 +1,34 @@
+package org.example.shoestorebackend.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class CartItemRepositoryCustomImpl implements CartItemRepositoryCustom {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void addQuantitiesBatch(Long userId, Map<Long, Integer> quantitiesByVariantId) {
+        // Sắp theo id để các lần merge đồng thời khóa dòng theo cùng thứ tự
+        List<Map.Entry<Long, Integer>> entries = new ArrayList<>(new TreeMap<>(quantitiesByVariantId).entrySet());
+        if (entries.isEmpty()) {
+            return;
+        }
+        // product_id lấy từ variant; unique (user_id, product_id, variant_id) biến insert trùng thành cộng dồn
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO cart_items (user_id, product_id, variant_id, quantity) " +
+                        "SELECT ?, pv.product_id, pv.id, ? FROM product_variants pv WHERE pv.id = ? " +
+                        "ON DUPLICATE KEY UPDATE quantity = cart_items.quantity + VALUES(quantity)",
+                entries, entries.size(),
+                (ps, entry) -> {
+                    ps.setLong(1, userId);
+                    ps.setInt(2, entry.getValue());
+                    ps.setLong(3, entry.getKey());
+                });
+    }
+}
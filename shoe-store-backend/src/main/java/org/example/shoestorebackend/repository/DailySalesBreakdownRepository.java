@@ -0,0 +1,24 @@
+package org.example.shoestorebackend.repository;
+
+import org.example.shoestorebackend.dto.SalesBreakdownDTO;
+import org.example.shoestorebackend.entity.DailySalesBreakdown;
+import org.example.shoestorebackend.entity.DailySalesBreakdownId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface DailySalesBreakdownRepository extends JpaRepository<DailySalesBreakdown, DailySalesBreakdownId> {
+    @Query("SELECT new org.example.shoestorebackend.dto.SalesBreakdownDTO(b.id.dimensionValue, " +
+            "SUM(b.revenue), SUM(b.units), SUM(b.orderCount)) " +
+            "FROM DailySalesBreakdown b " +
+            "WHERE b.id.dimension = :dimension AND b.id.salesDate >= :startDate AND b.id.salesDate < :endDate " +
+            "GROUP BY b.id.dimensionValue " +
+            "HAVING SUM(b.units) > 0 " +
+            "ORDER BY SUM(b.revenue) DESC")
+    List<SalesBreakdownDTO> summarize(@Param("dimension") String dimension,
+                                      @Param("startDate") LocalDate startDate,
+                                      @Param("endDate") LocalDate endDate);
+}
@@ -0,0 +1,33 @@
+package org.example.shoestorebackend.repository;
+
+import org.example.shoestorebackend.entity.DailySales;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface DailySalesRepository extends JpaRepository<DailySales, LocalDate>, DailySalesRepositoryCustom {
+    // Tổng doanh thu và số đơn đã giao trong khoảng ngày [startDate, endDate)
+    @Query("SELECT COALESCE(SUM(d.revenue), 0) AS revenue, COALESCE(SUM(d.orderCount), 0) AS orderCount " +
+            "FROM DailySales d WHERE d.salesDate >= :startDate AND d.salesDate < :endDate")
+    RevenueSummary summarize(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    // Doanh thu theo tháng, chỉ trả về các tháng có dữ liệu
+    @Query("SELECT MONTH(d.salesDate) AS month, SUM(d.revenue) AS revenue, SUM(d.orderCount) AS orderCount " +
+            "FROM DailySales d WHERE d.salesDate >= :startDate AND d.salesDate < :endDate " +
+            "GROUP BY MONTH(d.salesDate)")
+    List<MonthlyRevenue> sumByMonth(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    interface RevenueSummary {
+        Double getRevenue();
+        Long getOrderCount();
+    }
+
+    interface MonthlyRevenue {
+        Integer getMonth();
+        Double getRevenue();
+        Long getOrderCount();
+    }
+}
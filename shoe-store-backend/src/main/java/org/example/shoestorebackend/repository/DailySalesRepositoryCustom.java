@@ -0,0 +1,18 @@
+package org.example.shoestorebackend.repository;
+
+import org.example.shoestorebackend.entity.DailySalesBreakdown;
+
+import java.time.LocalDate;
+import java.util.Collection;
+
+public interface DailySalesRepositoryCustom {
+    // Cộng dồn (có thể âm) vào dòng tổng hợp của một ngày, tạo dòng nếu chưa có
+    void addDailyTotals(LocalDate salesDate, double revenue, long orderCount, long units,
+                        double discountTotal, long cancelledCount);
+
+    // Cộng dồn các dòng phân loại trong một JDBC batch
+    void addBreakdowns(Collection<DailySalesBreakdown> deltas);
+
+    // Xóa và tính lại toàn bộ bảng tổng hợp từ orders/order_items
+    void rebuildFromOrders();
+}
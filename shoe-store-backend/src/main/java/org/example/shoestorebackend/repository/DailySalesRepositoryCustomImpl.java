@@ -0,0 +1,85 @@
+package org.example.shoestorebackend.repository;
+
+import org.example.shoestorebackend.entity.DailySalesBreakdown;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+
+public class DailySalesRepositoryCustomImpl implements DailySalesRepositoryCustom {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void addDailyTotals(LocalDate salesDate, double revenue, long orderCount, long units,
+                               double discountTotal, long cancelledCount) {
+        jdbcTemplate.update(
+                "INSERT INTO daily_sales (sales_date, revenue, order_count, units, discount_total, cancelled_count) " +
+                        "VALUES (?, ?, ?, ?, ?, ?) " +
+                        "ON DUPLICATE KEY UPDATE revenue = revenue + VALUES(revenue), " +
+                        "order_count = order_count + VALUES(order_count), units = units + VALUES(units), " +
+                        "discount_total = discount_total + VALUES(discount_total), " +
+                        "cancelled_count = cancelled_count + VALUES(cancelled_count)",
+                Date.valueOf(salesDate), revenue, orderCount, units, discountTotal, cancelledCount);
+    }
+
+    @Override
+    public void addBreakdowns(Collection<DailySalesBreakdown> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO daily_sales_breakdown (sales_date, dimension, dimension_value, revenue, units, order_count) " +
+                        "VALUES (?, ?, ?, ?, ?, ?) " +
+                        "ON DUPLICATE KEY UPDATE revenue = revenue + VALUES(revenue), " +
+                        "units = units + VALUES(units), order_count = order_count + VALUES(order_count)",
+                new ArrayList<>(deltas), deltas.size(),
+                (ps, delta) -> {
+                    ps.setDate(1, Date.valueOf(delta.getId().getSalesDate()));
+                    ps.setString(2, delta.getId().getDimension());
+                    ps.setString(3, delta.getId().getDimensionValue());
+                    ps.setDouble(4, delta.getRevenue());
+                    ps.setLong(5, delta.getUnits());
+                    ps.setLong(6, delta.getOrderCount());
+                });
+    }
+
+    @Override
+    public void rebuildFromOrders() {
+        jdbcTemplate.update("DELETE FROM daily_sales_breakdown");
+        jdbcTemplate.update("DELETE FROM daily_sales");
+
+        jdbcTemplate.update(
+                "INSERT INTO daily_sales (sales_date, revenue, order_count, units, discount_total, cancelled_count) " +
+                        "SELECT DATE(o.created_at), " +
+                        "SUM(CASE WHEN o.status = 'DELIVERED' THEN o.total_amount - COALESCE(o.discount_amount, 0) ELSE 0 END), " +
+                        "SUM(CASE WHEN o.status = 'DELIVERED' THEN 1 ELSE 0 END), " +
+                        "SUM(CASE WHEN o.status = 'DELIVERED' THEN COALESCE(i.units, 0) ELSE 0 END), " +
+                        "SUM(CASE WHEN o.status = 'DELIVERED' THEN COALESCE(o.discount_amount, 0) ELSE 0 END), " +
+                        "SUM(CASE WHEN o.status = 'CANCELLED' THEN 1 ELSE 0 END) " +
+                        "FROM orders o " +
+                        "LEFT JOIN (SELECT order_id, SUM(quantity) AS units FROM order_items GROUP BY order_id) i " +
+                        "ON i.order_id = o.id " +
+                        "WHERE o.status IN ('DELIVERED', 'CANCELLED') " +
+                        "GROUP BY DATE(o.created_at)");
+
+        rebuildBreakdown("category", "p.category");
+        rebuildBreakdown("gender", "p.gender");
+    }
+
+    private void rebuildBreakdown(String dimension, String column) {
+        jdbcTemplate.update(
+                "INSERT INTO daily_sales_breakdown (sales_date, dimension, dimension_value, revenue, units, order_count) " +
+                        "SELECT DATE(o.created_at), ?, " + column + ", SUM(oi.price_at_time * oi.quantity), " +
+                        "SUM(oi.quantity), COUNT(DISTINCT o.id) " +
+                        "FROM orders o " +
+                        "JOIN order_items oi ON oi.order_id = o.id " +
+                        "JOIN products p ON p.id = oi.product_id " +
+                        "WHERE o.status = 'DELIVERED' " +
+                        "GROUP BY DATE(o.created_at), " + column,
+                dimension);
+    }
+}
@@ -9,4 +9,9 @@ import org.springframework.data.repository.query.Param;
 import java.util.List;
 
 public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
+    // Tổng số lượng đã đặt của từng sản phẩm: [productId, totalQuantity]
+    @Query("SELECT oi.product.id, SUM(oi.quantity) FROM OrderItem oi " +
+            "WHERE oi.order.status <> org.example.shoestorebackend.entity.Order.Status.CANCELLED " +
+            "GROUP BY oi.product.id")
+    List<Object[]> sumQuantityGroupByProduct();
 }
@@ -1,9 +1,16 @@
 package org.example.shoestorebackend.repository;
 
+import jakarta.persistence.LockModeType;
+import org.example.shoestorebackend.dto.AdminOrderSummaryDTO;
+import org.example.shoestorebackend.dto.TopCustomerDTO;
 import org.example.shoestorebackend.entity.Order;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -15,6 +22,59 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
 
     @EntityGraph(attributePaths = {"orderItems", "orderItems.product", "orderItems.variant", "orderItems.variant.size", "orderItems.variant.color"})
     Optional<Order> findByIdAndUserId(Long id, Long userId);
+
+    // Khóa dòng đơn hàng (SELECT ... FOR UPDATE) để các lần đổi trạng thái đồng thời chạy lần lượt
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.id = :id")
+    Optional<Order> findByIdForUpdate(@Param("id") Long id);
+
     @Query("SELECT o FROM Order o WHERE o.status = org.example.shoestorebackend.entity.Order.Status.DELIVERED AND o.createdAt BETWEEN :startDate AND :endDate")
     List<Order> findDeliveredOrdersByDate(LocalDateTime startDate, LocalDateTime endDate);
+
+    // Khách hàng có nhiều đơn đã giao nhất trong khoảng thời gian; số lượng lấy theo pageable
+    @Query("SELECT new org.example.shoestorebackend.dto.TopCustomerDTO(u.id, u.firstName, u.lastName, u.email, " +
+            "COUNT(o), SUM(o.totalAmount - COALESCE(o.discountAmount, 0))) " +
+            "FROM Order o JOIN o.user u " +
+            "WHERE o.status = org.example.shoestorebackend.entity.Order.Status.DELIVERED " +
+            "AND o.createdAt >= :startDate AND o.createdAt < :endDate " +
+            "GROUP BY u.id, u.firstName, u.lastName, u.email " +
+            "ORDER BY COUNT(o) DESC, SUM(o.totalAmount - COALESCE(o.discountAmount, 0)) DESC, u.id")
+    List<TopCustomerDTO> findTopCustomersByOrderCount(@Param("startDate") LocalDateTime startDate,
+                                                      @Param("endDate") LocalDateTime endDate,
+                                                      Pageable pageable);
+
+    // Khách hàng mang lại doanh thu cao nhất trong khoảng thời gian
+    @Query("SELECT new org.example.shoestorebackend.dto.TopCustomerDTO(u.id, u.firstName, u.lastName, u.email, " +
+            "COUNT(o), SUM(o.totalAmount - COALESCE(o.discountAmount, 0))) " +
+            "FROM Order o JOIN o.user u " +
+            "WHERE o.status = org.example.shoestorebackend.entity.Order.Status.DELIVERED " +
+            "AND o.createdAt >= :startDate AND o.createdAt < :endDate " +
+            "GROUP BY u.id, u.firstName, u.lastName, u.email " +
+            "ORDER BY SUM(o.totalAmount - COALESCE(o.discountAmount, 0)) DESC, COUNT(o) DESC, u.id")
+    List<TopCustomerDTO> findTopCustomersByRevenue(@Param("startDate") LocalDateTime startDate,
+                                                   @Param("endDate") LocalDateTime endDate,
+                                                   Pageable pageable);
+
+    // Danh sách đơn cho admin: projection chỉ lấy cột cần hiển thị, các bộ lọc null thì bỏ qua
+    @Query(value = "SELECT new org.example.shoestorebackend.dto.AdminOrderSummaryDTO(o.id, u.id, u.firstName, u.lastName, " +
+            "u.email, u.phone, o.totalAmount, o.discountAmount, o.paymentMethod, o.status, o.createdAt, " +
+            "(SELECT COALESCE(SUM(oi.quantity), 0) FROM OrderItem oi WHERE oi.order = o)) " +
+            "FROM Order o JOIN o.user u " +
+            "WHERE (:status IS NULL OR o.status = :status) " +
+            "AND (:userId IS NULL OR u.id = :userId) " +
+            "AND (:paymentMethod IS NULL OR o.paymentMethod = :paymentMethod) " +
+            "AND (:fromDate IS NULL OR o.createdAt >= :fromDate) " +
+            "AND (:toDate IS NULL OR o.createdAt < :toDate)",
+            countQuery = "SELECT COUNT(o) FROM Order o " +
+                    "WHERE (:status IS NULL OR o.status = :status) " +
+                    "AND (:userId IS NULL OR o.user.id = :userId) " +
+                    "AND (:paymentMethod IS NULL OR o.paymentMethod = :paymentMethod) " +
+                    "AND (:fromDate IS NULL OR o.createdAt >= :fromDate) " +
+                    "AND (:toDate IS NULL OR o.createdAt < :toDate)")
+    Page<AdminOrderSummaryDTO> findAdminOrderSummaries(@Param("status") Order.Status status,
+                                                       @Param("userId") Long userId,
+                                                       @Param("paymentMethod") String paymentMethod,
+                                                       @Param("fromDate") LocalDateTime fromDate,
+                                                       @Param("toDate") LocalDateTime toDate,
+                                                       Pageable pageable);
 }
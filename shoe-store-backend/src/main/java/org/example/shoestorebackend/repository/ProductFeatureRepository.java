@@ -2,9 +2,15 @@ package org.example.shoestorebackend.repository;
 
 import org.example.shoestorebackend.entity.ProductFeature;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface ProductFeatureRepository extends JpaRepository<ProductFeature, Long> {
     List<ProductFeature> findByProductId(Long productId);
+
+    @Query("SELECT pf FROM ProductFeature pf WHERE pf.product.id IN :productIds")
+    List<ProductFeature> findByProductIdIn(@Param("productIds") Collection<Long> productIds);
 }
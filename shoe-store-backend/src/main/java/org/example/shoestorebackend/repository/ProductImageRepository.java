@@ -0,0 +1,19 @@
+package org.example.shoestorebackend.repository;
+
+import org.example.shoestorebackend.entity.ProductImage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ProductImageRepository extends JpaRepository<ProductImage, Long> {
+    @Query("SELECT pi FROM ProductImage pi WHERE pi.product.id IN :productIds")
+    List<ProductImage> findByProductIdIn(@Param("productIds") Collection<Long> productIds);
+
+    @Modifying
+    @Query("DELETE FROM ProductImage pi WHERE pi.product.id = :productId")
+    void deleteByProductId(@Param("productId") Long productId);
+}
@@ -6,16 +6,23 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
-public interface ProductVariantRepository extends JpaRepository<ProductVariant, Long> {
+public interface ProductVariantRepository extends JpaRepository<ProductVariant, Long>, ProductVariantRepositoryCustom {
     @Query("SELECT pv FROM ProductVariant pv " +
             "LEFT JOIN FETCH pv.size " +
             "LEFT JOIN FETCH pv.color " +
             "WHERE pv.product.id = :productId")
     List<ProductVariant> findByProductId(@Param("productId") Long productId);
 
+    @Query("SELECT pv FROM ProductVariant pv " +
+            "LEFT JOIN FETCH pv.size " +
+            "LEFT JOIN FETCH pv.color " +
+            "WHERE pv.product.id IN :productIds")
+    List<ProductVariant> findByProductIdIn(@Param("productIds") Collection<Long> productIds);
+
     @Query("SELECT pv FROM ProductVariant pv " +
             "LEFT JOIN FETCH pv.size " +
             "LEFT JOIN FETCH pv.color " +
@@ -24,6 +31,14 @@ public interface ProductVariantRepository extends JpaRepository<ProductVariant,
             @Param("productId") Long productId,
             @Param("size") String size,
             @Param("color") String color);
+
+    @Query("SELECT pv FROM ProductVariant pv " +
+            "WHERE pv.product.id = :productId AND pv.size.id = :sizeId AND pv.color.id = :colorId")
+    Optional<ProductVariant> findByProductIdAndSizeIdAndColorId(
+            @Param("productId") Long productId,
+            @Param("sizeId") Long sizeId,
+            @Param("colorId") Long colorId);
+
     List<ProductVariant> findByProduct(Product product);
 
 }
\ No newline at end of file
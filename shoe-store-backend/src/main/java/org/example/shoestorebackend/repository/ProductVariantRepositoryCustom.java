@@ -0,0 +1,12 @@
+package org.example.shoestorebackend.repository;
+
+import java.util.List;
+import java.util.Map;
+
+public interface ProductVariantRepositoryCustom {
+    // Trừ tồn kho cho nhiều variant trong một JDBC batch, trả về id các variant không còn đủ hàng
+    List<Long> decrementStockBatch(Map<Long, Integer> quantitiesByVariantId);
+
+    // Cộng lại tồn kho cho nhiều variant trong một JDBC batch (dùng khi hủy đơn)
+    void incrementStockBatch(Map<Long, Integer> quantitiesByVariantId);
+}
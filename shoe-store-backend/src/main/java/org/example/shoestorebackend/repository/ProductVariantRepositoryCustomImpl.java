@@ -0,0 +1,60 @@
+package org.example.shoestorebackend.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class ProductVariantRepositoryCustomImpl implements ProductVariantRepositoryCustom {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<Long> decrementStockBatch(Map<Long, Integer> quantitiesByVariantId) {
+        // Sắp theo id để các đơn đặt đồng thời khóa dòng theo cùng thứ tự, tránh deadlock
+        List<Map.Entry<Long, Integer>> entries = new ArrayList<>(new TreeMap<>(quantitiesByVariantId).entrySet());
+        List<Long> insufficient = new ArrayList<>();
+        if (entries.isEmpty()) {
+            return insufficient;
+        }
+
+        // Chỉ trừ khi còn đủ hàng; dòng nào cập nhật 0 bản ghi nghĩa là đã hết
+        int[][] counts = jdbcTemplate.batchUpdate(
+                "UPDATE product_variants SET quantity = quantity - ? WHERE id = ? AND quantity >= ?",
+                entries, entries.size(),
+                (ps, entry) -> {
+                    ps.setInt(1, entry.getValue());
+                    ps.setLong(2, entry.getKey());
+                    ps.setInt(3, entry.getValue());
+                });
+
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count == 0) {
+                    insufficient.add(entries.get(index).getKey());
+                }
+                index++;
+            }
+        }
+        return insufficient;
+    }
+
+    @Override
+    public void incrementStockBatch(Map<Long, Integer> quantitiesByVariantId) {
+        List<Map.Entry<Long, Integer>> entries = new ArrayList<>(new TreeMap<>(quantitiesByVariantId).entrySet());
+        if (entries.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(
+                "UPDATE product_variants SET quantity = quantity + ? WHERE id = ?",
+                entries, entries.size(),
+                (ps, entry) -> {
+                    ps.setInt(1, entry.getValue());
+                    ps.setLong(2, entry.getKey());
+                });
+    }
+}
@@ -2,6 +2,8 @@ package org.example.shoestorebackend.repository;
 
 import org.example.shoestorebackend.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -11,4 +13,8 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     Optional<User> findByEmail(String email);
     Optional<User> findByPhone(String phone);
+
+    // Chỉ đọc cờ bị chặn, dùng cho xác thực JWT không cần tải cả User
+    @Query("SELECT u.isBlocked FROM User u WHERE u.id = :id")
+    Optional<Boolean> findBlockedById(@Param("id") Long id);
 }
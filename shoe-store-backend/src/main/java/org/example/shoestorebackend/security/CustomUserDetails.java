@@ -21,6 +21,14 @@ public class CustomUserDetails implements UserDetails {
         this.role = user.getRole().toString();
     }
 
+    // Dựng từ claims của JWT đã xác thực (chế độ stateless), không có mật khẩu
+    public CustomUserDetails(Long id, String email, String role) {
+        this.id = id;
+        this.email = email;
+        this.password = null;
+        this.role = role;
+    }
+
     public Long getId() {
         return id;
     }
@@ -27,6 +27,9 @@ public class AuthService {
     @Autowired
     private AuthenticationManager authenticationManager;
 
+    @Autowired
+    private UserStatusService userStatusService;
+
     @Transactional
     public User register(@Valid RegisterRequest request) {
         if (userRepository.findByEmail(request.getEmail()).isPresent()) {
@@ -85,14 +88,18 @@ public class AuthService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found with id: " + userId));
         user.setBlocked(true);
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        userStatusService.invalidateAfterCommit(userId);
+        return saved;
     }
 
     public User unblockUser(Long userId) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found with id: " + userId));
         user.setBlocked(false);
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        userStatusService.invalidateAfterCommit(userId);
+        return saved;
     }
 
     // Thêm phương thức mới để lấy danh sách tất cả người dùng
@@ -1,21 +1,26 @@
 package org.example.shoestorebackend.service;
 
+import org.example.shoestorebackend.dto.CartDeltaDTO;
 import org.example.shoestorebackend.dto.CartItemDTO;
 import org.example.shoestorebackend.dto.CartItemResponseDTO;
 import org.example.shoestorebackend.entity.CartItem;
 import org.example.shoestorebackend.entity.Product;
 import org.example.shoestorebackend.entity.ProductVariant;
-import org.example.shoestorebackend.entity.User;
 import org.example.shoestorebackend.repository.CartItemRepository;
-import org.example.shoestorebackend.repository.ProductRepository;
 import org.example.shoestorebackend.repository.ProductVariantRepository;
-import org.example.shoestorebackend.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.logging.Logger;
 
@@ -29,14 +34,16 @@ public class CartService {
     @Autowired
     private ProductVariantRepository productVariantRepository;
     @Autowired
-    private ProductRepository productRepository;
+    private ProductVariantService productVariantService;
     @Autowired
-    private UserRepository userRepository;
+    private VariantAvailabilityIndex variantAvailabilityIndex;
+    @Autowired
+    private CartVersionService cartVersionService;
 
     @Transactional(readOnly = true)
     public List<CartItem> getCartItems(Long userId) {
         logger.info("Fetching cart items for user: " + userId);
-        return cartItemRepository.findByUserId(userId);
+        return cartItemRepository.findByUserIdWithDetails(userId);
     }
 
     @Transactional
@@ -53,6 +60,7 @@ public class CartService {
 
         Optional<CartItem> existingItemOpt = cartItemRepository.findByUserIdAndProductIdAndVariantId(
                 userId, productId, variantId);
+        cartVersionService.reserve(userId);
 
         if (existingItemOpt.isPresent()) {
             CartItem existingItem = existingItemOpt.get();
@@ -69,60 +77,61 @@ public class CartService {
             return cartItemRepository.save(cartItem);
         }
     }
+    /**
+     * Gộp giỏ hàng khách vào giỏ của user theo lô: resolve mọi variant bằng một truy vấn,
+     * cộng dồn số lượng trùng trong bộ nhớ, ghi bằng một batch upsert rồi đọc lại các dòng đã gộp.
+     * Trả về các dòng giỏ hàng đã được thêm hoặc cộng dồn.
+     */
     @Transactional
-    public void mergeCart(Long userId, List<CartItemDTO> localCartItems) {
+    public List<CartItem> mergeCart(Long userId, List<CartItemDTO> localCartItems) {
         logger.info("Merging cart for userId=" + userId + ", items count=" + (localCartItems == null ? 0 : localCartItems.size()));
 
         if (localCartItems == null || localCartItems.isEmpty()) {
             logger.info("No items to merge");
-            return;
+            return new ArrayList<>();
         }
 
+        Map<ProductVariantService.VariantKey, Integer> quantitiesByKey = new LinkedHashMap<>();
         for (CartItemDTO dto : localCartItems) {
-            logger.info("Merging CartItemDTO: productId=" + (dto.getProduct() != null ? dto.getProduct().getId() : "null") +
-                    ", size=" + dto.getSize() + ", color=" + dto.getColor() + ", quantity=" + dto.getQuantity());
+            if (dto.getProduct() == null || dto.getProduct().getId() == null ||
+                    dto.getSize() == null || dto.getColor() == null ||
+                    dto.getQuantity() == null || dto.getQuantity() <= 0) {
+                logger.warning("Skipping invalid CartItemDTO during merge: " + dto);
+                continue;
+            }
+
+            Long productId;
             try {
-                if (dto.getProduct() == null || dto.getProduct().getId() == null ||
-                        dto.getSize() == null || dto.getColor() == null ||
-                        dto.getQuantity() == null || dto.getQuantity() <= 0) {
-                    logger.warning("Skipping invalid CartItemDTO during merge: " + dto);
-                    continue;
-                }
-
-                Long productId;
-                try {
-                    productId = Long.parseLong(dto.getProduct().getId());
-                } catch (NumberFormatException e) {
-                    logger.warning("Invalid product ID format in CartItemDTO: " + dto.getProduct().getId());
-                    continue;
-                }
-
-                ProductVariant variant = productVariantRepository.findByProductIdAndSizeSizeAndColorColor(
-                                productId, dto.getSize(), dto.getColor())
-                        .orElse(null);
-                if (variant == null) {
-                    logger.warning("Variant not found for productId=" + productId + ", size=" + dto.getSize() + ", color=" + dto.getColor());
-                    continue;
-                }
-
-                User user = userRepository.findById(userId)
-                        .orElseThrow(() -> new RuntimeException("User not found with id: " + userId));
-                Product product = productRepository.findById(productId)
-                        .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId));
-
-                CartItem cartItem = new CartItem();
-                cartItem.setUser(user);
-                cartItem.setProduct(product);
-                cartItem.setVariant(variant);
-                cartItem.setQuantity(dto.getQuantity());
-
-                addToCart(cartItem);
-            } catch (Exception e) {
-                logger.severe("Error processing CartItemDTO: " + dto + ", error: " + e.getMessage());
-                e.printStackTrace();
-                throw e;  // Để lỗi được propagate lên và transaction rollback, hoặc bạn xử lý theo cách khác
+                productId = Long.parseLong(dto.getProduct().getId());
+            } catch (NumberFormatException e) {
+                logger.warning("Invalid product ID format in CartItemDTO: " + dto.getProduct().getId());
+                continue;
+            }
+
+            quantitiesByKey.merge(new ProductVariantService.VariantKey(productId, dto.getSize(), dto.getColor()),
+                    dto.getQuantity(), Integer::sum);
+        }
+
+        Map<ProductVariantService.VariantKey, ProductVariant> variants =
+                productVariantService.resolveVariants(quantitiesByKey.keySet());
+        Map<Long, Integer> quantitiesByVariant = new LinkedHashMap<>();
+        for (Map.Entry<ProductVariantService.VariantKey, Integer> entry : quantitiesByKey.entrySet()) {
+            ProductVariant variant = variants.get(entry.getKey());
+            if (variant == null) {
+                logger.warning("Variant not found for productId=" + entry.getKey().getProductId() +
+                        ", size=" + entry.getKey().getSize() + ", color=" + entry.getKey().getColor());
+                continue;
             }
+            quantitiesByVariant.merge(variant.getId(), entry.getValue(), Integer::sum);
         }
+
+        if (quantitiesByVariant.isEmpty()) {
+            return new ArrayList<>();
+        }
+        cartVersionService.reserve(userId);
+        cartItemRepository.addQuantitiesBatch(userId, quantitiesByVariant);
+        logger.info("Merged " + quantitiesByVariant.size() + " variants into cart of user " + userId);
+        return cartItemRepository.findByUserIdAndVariantIdInWithDetails(userId, quantitiesByVariant.keySet());
     }
 
 
@@ -136,6 +145,7 @@ public class CartService {
             throw new IllegalArgumentException("Quantity must be greater than 0");
         }
         cartItem.setQuantity(quantity);
+        cartVersionService.reserve(cartItem.getUser().getId());
         return cartItemRepository.save(cartItem);
     }
 
@@ -144,6 +154,7 @@ public class CartService {
         logger.info("Deleting cart item with ID: " + id);
         CartItem cartItem = cartItemRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Cart item not found with id: " + id));
+        cartVersionService.reserve(cartItem.getUser().getId());
         cartItemRepository.delete(cartItem);
     }
 
@@ -151,18 +162,76 @@ public class CartService {
     public void clearCart(Long userId) {
         logger.info("Clearing cart for user: " + userId);
         List<CartItem> cartItems = cartItemRepository.findByUserId(userId);
+        cartVersionService.reserve(userId);
         cartItemRepository.deleteAll(cartItems);
     }
 
     @Transactional(readOnly = true)
     public List<CartItemResponseDTO> getCartItemResponseDTOs(Long userId) {
         logger.info("Converting cart items to DTOs for user: " + userId);
-        return getCartItems(userId).stream()
-                .map(this::mapToCartItemResponseDTO)
+        return toResponseDTOs(getCartItems(userId));
+    }
+
+    /**
+     * Chỉ các dòng vừa thay đổi kèm phiên bản và tổng của cả giỏ, thay cho việc đọc lại toàn bộ giỏ hàng.
+     * Phiên bản được đọc trước dữ liệu nên không bao giờ mới hơn dữ liệu trả về.
+     */
+    @Transactional(readOnly = true)
+    public CartDeltaDTO getCartDelta(Long userId, Collection<Long> changedItemIds, Collection<Long> removedItemIds) {
+        CartDeltaDTO delta = new CartDeltaDTO();
+        delta.setVersion(cartVersionService.currentVersion(userId));
+        if (!changedItemIds.isEmpty()) {
+            delta.setChangedItems(toResponseDTOs(cartItemRepository.findByUserIdAndIdInWithDetails(userId, changedItemIds)));
+        }
+        delta.setRemovedItemIds(new ArrayList<>(removedItemIds));
+        CartItemRepository.CartTotals totals = cartItemRepository.summarizeByUserId(userId);
+        delta.setItemCount(totals.getItemCount() != null ? totals.getItemCount() : 0);
+        delta.setTotalQuantity(totals.getTotalQuantity() != null ? totals.getTotalQuantity() : 0);
+        delta.setTotalAmount(totals.getTotalAmount() != null ? totals.getTotalAmount() : 0);
+        return delta;
+    }
+
+    private List<CartItemResponseDTO> toResponseDTOs(List<CartItem> cartItems) {
+        Set<Long> productIds = cartItems.stream()
+                .map(item -> item.getProduct().getId())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        Map<Long, List<String>> sizesByProduct = new HashMap<>();
+        Map<Long, List<String>> colorsByProduct = new HashMap<>();
+        loadSizesAndColors(productIds, sizesByProduct, colorsByProduct);
+        return cartItems.stream()
+                .map(item -> mapToCartItemResponseDTO(item,
+                        sizesByProduct.getOrDefault(item.getProduct().getId(), new ArrayList<>()),
+                        colorsByProduct.getOrDefault(item.getProduct().getId(), new ArrayList<>())))
                 .collect(Collectors.toList());
     }
 
-    private CartItemResponseDTO mapToCartItemResponseDTO(CartItem cartItem) {
+    // Sizes và colors của mọi sản phẩm trong giỏ: lấy từ index tồn kho, chưa sẵn sàng thì một truy vấn cho cả giỏ
+    private void loadSizesAndColors(Set<Long> productIds, Map<Long, List<String>> sizesByProduct,
+                                    Map<Long, List<String>> colorsByProduct) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        if (variantAvailabilityIndex.isReady()) {
+            for (Long productId : productIds) {
+                sizesByProduct.put(productId, variantAvailabilityIndex.getSizes(productId));
+                colorsByProduct.put(productId, variantAvailabilityIndex.getColors(productId));
+            }
+            return;
+        }
+        for (ProductVariant variant : productVariantRepository.findByProductIdIn(productIds)) {
+            Long productId = variant.getProduct().getId();
+            List<String> sizes = sizesByProduct.computeIfAbsent(productId, id -> new ArrayList<>());
+            if (!sizes.contains(variant.getSize().getSize())) {
+                sizes.add(variant.getSize().getSize());
+            }
+            List<String> colors = colorsByProduct.computeIfAbsent(productId, id -> new ArrayList<>());
+            if (!colors.contains(variant.getColor().getColor())) {
+                colors.add(variant.getColor().getColor());
+            }
+        }
+    }
+
+    private CartItemResponseDTO mapToCartItemResponseDTO(CartItem cartItem, List<String> sizes, List<String> colors) {
         CartItemResponseDTO responseDTO = new CartItemResponseDTO();
         responseDTO.setId(cartItem.getId());
         responseDTO.setQuantity(cartItem.getQuantity());
@@ -184,18 +253,6 @@ public class CartService {
         productDTO.setCategory(product.getCategory());
         productDTO.setGender(product.getGender());
 
-        // Lấy danh sách sizes và colors từ ProductVariant
-        List<String> sizes = productVariantRepository.findByProductId(product.getId())
-                .stream()
-                .map(variant -> variant.getSize().getSize())
-                .distinct()
-                .collect(Collectors.toList());
-        List<String> colors = productVariantRepository.findByProductId(product.getId())
-                .stream()
-                .map(variant -> variant.getColor().getColor())
-                .distinct()
-                .collect(Collectors.toList());
-
         productDTO.setSizes(sizes);
         productDTO.setColors(colors);
         responseDTO.setProduct(productDTO);
@@ -209,6 +266,7 @@ public class CartService {
     }
     @Transactional
     public CartItem saveCartItem(CartItem cartItem) {
+        cartVersionService.reserve(cartItem.getUser().getId());
         return cartItemRepository.save(cartItem);
     }
 }
\ No newline at end of file
@@ -0,0 +1,134 @@
+package org.example.shoestorebackend.service;
+
+import org.example.shoestorebackend.util.BoundedCache;
+import org.example.shoestorebackend.util.TransactionUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Phiên bản giỏ hàng của từng user, dùng làm ETag cho GET /api/cart và trả kèm response dạng delta.
+ * Phiên bản có dạng "thời điểm khởi động-số thứ tự" nên không lặp lại sau khi restart;
+ * user chưa có trong cache (mới, hoặc bị đẩy ra) được cấp số mới, client chỉ mất một lần 304.
+ * Số thứ tự được giữ chỗ trong transaction thay đổi giỏ hàng và chỉ có hiệu lực sau khi commit,
+ * nên một phiên bản không bao giờ gắn với dữ liệu cũ hơn nó.
+ * Giỏ hàng còn hiển thị giá, tên, ảnh và size/màu còn hàng của sản phẩm, nên phiên bản kèm thêm
+ * phiên bản catalog: admin sửa hoặc xóa sản phẩm thì mọi ETag giỏ hàng cũ hết hiệu lực.
+ * <p>
+ * Giới hạn: phiên bản chỉ nằm trong bộ nhớ của từng instance, instance khác không biết giỏ hàng
+ * hay sản phẩm đã đổi ở instance này. Vì vậy chỉ được trả 304 mà không đọc database khi
+ * cart.etag.single-instance=true (chạy đúng một instance); mặc định ETag của GET /api/cart
+ * được tính từ nội dung giỏ hàng đọc từ database.
+ */
+@Service
+public class CartVersionService {
+    private final long bootEpoch = System.currentTimeMillis();
+    private final AtomicLong sequence = new AtomicLong();
+    private final BoundedCache<Long, CartVersion> versions;
+    private final boolean singleInstance;
+
+    @Autowired
+    private ProductCacheService productCacheService;
+
+    public CartVersionService(@Value("${cart.version-cache.max-size:10000}") int maxSize,
+                              @Value("${cart.version-cache.ttl-seconds:86400}") long ttlSeconds,
+                              @Value("${cart.etag.single-instance:false}") boolean singleInstance) {
+        this.versions = new BoundedCache<>(maxSize, Duration.ofSeconds(ttlSeconds));
+        this.singleInstance = singleInstance;
+    }
+
+    // Phiên bản trong bộ nhớ chỉ đáng tin làm ETag khi mọi thay đổi đều đi qua instance này
+    public boolean isSingleInstance() {
+        return singleInstance;
+    }
+
+    // Trong transaction đã thay đổi giỏ hàng thì trả về phiên bản sẽ có hiệu lực khi commit
+    public String currentVersion(Long userId) {
+        Long reserved = (Long) TransactionSynchronizationManager.getResource(new ReservationKey(userId));
+        return format(reserved != null ? reserved : versionOf(userId).current());
+    }
+
+    // Gọi trong mọi transaction thay đổi giỏ hàng của user; gọi nhiều lần trong cùng transaction trả về cùng một số
+    public String reserve(Long userId) {
+        ReservationKey key = new ReservationKey(userId);
+        Long reserved = (Long) TransactionSynchronizationManager.getResource(key);
+        if (reserved != null) {
+            return format(reserved);
+        }
+        CartVersion version = versionOf(userId);
+        long next = version.reserve();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.bindResource(key, next);
+        }
+        TransactionUtils.afterCompletion(committed -> {
+            TransactionSynchronizationManager.unbindResourceIfPossible(key);
+            version.complete(next, committed);
+        });
+        return format(next);
+    }
+
+    private CartVersion versionOf(Long userId) {
+        return versions.getOrLoad(userId, id -> new CartVersion(sequence.incrementAndGet()));
+    }
+
+    // Phiên bản catalog được đọc trước dữ liệu sản phẩm nên cũng không bao giờ mới hơn dữ liệu trả về
+    private String format(long value) {
+        return bootEpoch + "-" + value + "-" + productCacheService.getCatalogVersion();
+    }
+
+    private final class CartVersion {
+        private long current;
+        private int inFlight;
+        // Có transaction khác chạy chồng lên: không transaction nào biết chắc dữ liệu cuối cùng
+        private boolean contended;
+
+        private CartVersion(long current) {
+            this.current = current;
+        }
+
+        private synchronized long current() {
+            return current;
+        }
+
+        private synchronized long reserve() {
+            inFlight++;
+            if (inFlight > 1) {
+                contended = true;
+            }
+            return sequence.incrementAndGet();
+        }
+
+        private synchronized void complete(long reserved, boolean committed) {
+            inFlight--;
+            if (committed) {
+                // Bị chồng lấn thì cấp số mới mà chưa client nào giữ, buộc client đọc lại toàn bộ
+                current = contended ? sequence.incrementAndGet() : reserved;
+            }
+            if (inFlight == 0) {
+                contended = false;
+            }
+        }
+    }
+
+    private static final class ReservationKey {
+        private final Long userId;
+
+        private ReservationKey(Long userId) {
+            this.userId = userId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ReservationKey && ((ReservationKey) o).userId.equals(userId);
+        }
+
+        @Override
+        public int hashCode() {
+            return ReservationKey.class.hashCode() * 31 + userId.hashCode();
+        }
+    }
+}
@@ -1,49 +1,70 @@
 package org.example.shoestorebackend.service;
 
-import org.example.shoestorebackend.entity.Order;
-import org.example.shoestorebackend.entity.User;
+import org.example.shoestorebackend.dto.TopCustomerDTO;
 import org.example.shoestorebackend.entity.DashboardStats;
 import org.example.shoestorebackend.entity.RevenueChartData;
+import org.example.shoestorebackend.repository.DailySalesBreakdownRepository;
+import org.example.shoestorebackend.repository.DailySalesRepository;
 import org.example.shoestorebackend.repository.OrderRepository;
-import org.example.shoestorebackend.repository.UserRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.Month;
 import java.time.YearMonth;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
 
 @Service
 public class DashboardService {
+    private static final int DEFAULT_TOP_CUSTOMERS = 5;
+    private static final int MAX_TOP_CUSTOMERS = 50;
+
     private final OrderRepository orderRepository;
-    private final UserRepository userRepository;
+    private final DailySalesRepository dailySalesRepository;
+    private final DailySalesBreakdownRepository dailySalesBreakdownRepository;
+    private final SalesRollupService salesRollupService;
 
-    public DashboardService(OrderRepository orderRepository, UserRepository userRepository) {
+    public DashboardService(OrderRepository orderRepository, DailySalesRepository dailySalesRepository,
+                            DailySalesBreakdownRepository dailySalesBreakdownRepository,
+                            SalesRollupService salesRollupService) {
         this.orderRepository = orderRepository;
-        this.userRepository = userRepository;
+        this.dailySalesRepository = dailySalesRepository;
+        this.dailySalesBreakdownRepository = dailySalesBreakdownRepository;
+        this.salesRollupService = salesRollupService;
     }
 
     public DashboardStats getDashboardStats(int year, int month) {
+        return getDashboardStats(year, month, DEFAULT_TOP_CUSTOMERS);
+    }
+
+    public DashboardStats getDashboardStats(int year, int month, int topLimit) {
         YearMonth yearMonth = YearMonth.of(year, month);
         LocalDateTime startDate = yearMonth.atDay(1).atStartOfDay();
-        LocalDateTime endDate = yearMonth.atEndOfMonth().atTime(23, 59, 59);
+        LocalDateTime endDate = yearMonth.plusMonths(1).atDay(1).atStartOfDay();
 
-        List<Order> deliveredOrders = orderRepository.findDeliveredOrdersByDate(startDate, endDate);
-        double totalRevenue = deliveredOrders.stream()
-                .mapToDouble(order -> order.getTotalAmount() - (order.getDiscountAmount() != null ? order.getDiscountAmount() : 0))
-                .sum();
-        long orderCount = deliveredOrders.size();
+        // Doanh thu và số đơn đọc từ bảng tổng hợp theo ngày
+        DailySalesRepository.RevenueSummary summary =
+                dailySalesRepository.summarize(startDate.toLocalDate(), endDate.toLocalDate());
+        double totalRevenue = summary.getRevenue() != null ? summary.getRevenue() : 0;
+        long orderCount = summary.getOrderCount() != null ? summary.getOrderCount() : 0;
 
-        Optional<User> topCustomer = userRepository.findAll().stream()
-                .max((u1, u2) -> {
-                    long count1 = deliveredOrders.stream().filter(o -> o.getUser().getId().equals(u1.getId())).count();
-                    long count2 = deliveredOrders.stream().filter(o -> o.getUser().getId().equals(u2.getId())).count();
-                    return Long.compare(count1, count2);
-                });
-        String topCustomerName = topCustomer.map(user -> user.getFirstName() + " " + user.getLastName()).orElse(null);
+        // Top khách hàng lấy bằng GROUP BY user + LIMIT
+        Pageable top = PageRequest.of(0, Math.max(1, Math.min(topLimit, MAX_TOP_CUSTOMERS)));
+        List<TopCustomerDTO> byOrders = orderRepository.findTopCustomersByOrderCount(startDate, endDate, top);
+        List<TopCustomerDTO> byRevenue = orderRepository.findTopCustomersByRevenue(startDate, endDate, top);
+        String topCustomerName = byOrders.isEmpty() ? null : byOrders.get(0).getName();
 
-        return new DashboardStats(totalRevenue, orderCount, topCustomerName);
+        DashboardStats stats = new DashboardStats(totalRevenue, orderCount, topCustomerName);
+        stats.setTopCustomersByOrders(byOrders);
+        stats.setTopCustomersByRevenue(byRevenue);
+        stats.setCategoryBreakdown(dailySalesBreakdownRepository.summarize(
+                SalesRollupService.DIMENSION_CATEGORY, startDate.toLocalDate(), endDate.toLocalDate()));
+        stats.setGenderBreakdown(dailySalesBreakdownRepository.summarize(
+                SalesRollupService.DIMENSION_GENDER, startDate.toLocalDate(), endDate.toLocalDate()));
+        return stats;
     }
 
     public RevenueChartData getRevenueChartData(int year) {
@@ -51,22 +72,26 @@ public class DashboardService {
         List<String> labels = new ArrayList<>();
         List<Double> data = new ArrayList<>();
 
-        for (int month = 1; month <= 12; month++) {
-            YearMonth yearMonth = YearMonth.of(year, month);
-            LocalDateTime startDate = yearMonth.atDay(1).atStartOfDay();
-            LocalDateTime endDate = yearMonth.atEndOfMonth().atTime(23, 59, 59);
-
-            List<Order> deliveredOrders = orderRepository.findDeliveredOrdersByDate(startDate, endDate);
-            double monthlyRevenue = deliveredOrders.stream()
-                    .mapToDouble(order -> order.getTotalAmount() - (order.getDiscountAmount() != null ? order.getDiscountAmount() : 0))
-                    .sum();
+        // Cộng tối đa 366 dòng tổng hợp theo ngày thành 12 tháng, tháng không có đơn giữ giá trị 0
+        double[] monthlyRevenue = new double[12];
+        LocalDate startDate = LocalDate.of(year, 1, 1);
+        LocalDate endDate = startDate.plusYears(1);
+        for (DailySalesRepository.MonthlyRevenue row : dailySalesRepository.sumByMonth(startDate, endDate)) {
+            monthlyRevenue[row.getMonth() - 1] = row.getRevenue() != null ? row.getRevenue() : 0;
+        }
 
-            labels.add(yearMonth.getMonth().toString().substring(0, 3)); // Ví dụ: "JAN", "FEB"
-            data.add(monthlyRevenue);
+        for (int month = 1; month <= 12; month++) {
+            labels.add(Month.of(month).toString().substring(0, 3)); // Ví dụ: "JAN", "FEB"
+            data.add(monthlyRevenue[month - 1]);
         }
 
         chartData.setLabels(labels);
         chartData.setData(data);
         return chartData;
     }
-}
\ No newline at end of file
+
+    // Tính lại bảng tổng hợp từ toàn bộ lịch sử đơn hàng
+    public void rebuildSalesRollup() {
+        salesRollupService.rebuild();
+    }
+}
@@ -0,0 +1,202 @@
+package org.example.shoestorebackend.service;
+
+import jakarta.annotation.PreDestroy;
+import org.example.shoestorebackend.entity.Product;
+import org.example.shoestorebackend.entity.ProductImage;
+import org.example.shoestorebackend.repository.ProductImageRepository;
+import org.example.shoestorebackend.repository.ProductRepository;
+import org.example.shoestorebackend.util.TransactionUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Sinh các bản resize (thumbnail, listing, detail) của ảnh sản phẩm trên một thread pool giới hạn,
+ * ghi URL vào bảng product_images. Request upload chỉ lưu ảnh gốc rồi trả về ngay.
+ */
+@Service
+public class ImagePipelineService {
+    private static final Logger logger = Logger.getLogger(ImagePipelineService.class.getName());
+
+    // Cạnh dài tối đa của từng bản resize; ảnh nhỏ hơn thì giữ nguyên kích thước
+    private static final Map<String, Integer> VARIANT_SIZES = new LinkedHashMap<>();
+
+    static {
+        VARIANT_SIZES.put(ProductImage.THUMBNAIL, 200);
+        VARIANT_SIZES.put(ProductImage.LISTING, 400);
+        VARIANT_SIZES.put(ProductImage.DETAIL, 1000);
+    }
+
+    private static final float JPEG_QUALITY = 0.85f;
+
+    @Autowired
+    private ImageStorageService imageStorageService;
+
+    @Autowired
+    private ProductImageRepository productImageRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductCacheService productCacheService;
+
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolExecutor executor;
+
+    public ImagePipelineService(PlatformTransactionManager transactionManager,
+                                @Value("${app.images.executor.threads:2}") int threads,
+                                @Value("${app.images.executor.queue-capacity:100}") int queueCapacity) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        AtomicInteger threadCount = new AtomicInteger();
+        // Hàng đợi đầy thì thread gọi tự xử lý: chậm lại thay vì mất việc hoặc dồn vô hạn vào bộ nhớ
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-pipeline-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    // Gửi ảnh sản phẩm đi resize sau khi transaction lưu sản phẩm commit; bỏ qua ảnh không nằm trong thư mục ảnh
+    public void processAfterCommit(Long productId, String sourceUrl) {
+        if (productId == null || imageStorageService.resolve(sourceUrl) == null) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> executor.execute(() -> process(productId, sourceUrl)));
+    }
+
+    private void process(Long productId, String sourceUrl) {
+        try {
+            boolean alreadyProcessed = productImageRepository.findByProductIdIn(List.of(productId)).stream()
+                    .anyMatch(image -> sourceUrl.equals(image.getSourceUrl()));
+            if (alreadyProcessed) {
+                return;
+            }
+            Path source = imageStorageService.resolve(sourceUrl);
+            if (source == null || !Files.exists(source)) {
+                logger.warning("Source image not found for product " + productId + ": " + sourceUrl);
+                return;
+            }
+
+            long start = System.currentTimeMillis();
+            BufferedImage original = ImageIO.read(source.toFile());
+            if (original == null) {
+                logger.warning("Unsupported image format for product " + productId + ": " + sourceUrl);
+                return;
+            }
+            // Tên bản resize dựa trên tên ảnh gốc (đã là hash nội dung) nên các sản phẩm dùng chung ảnh dùng chung file
+            String baseName = source.getFileName().toString().replaceFirst("\\.[^.]+$", "");
+            List<ProductImage> images = new ArrayList<>();
+            for (Map.Entry<String, Integer> entry : VARIANT_SIZES.entrySet()) {
+                BufferedImage resized = resize(original, entry.getValue());
+                String fileName = baseName + "-" + entry.getKey() + ".jpg";
+                writeJpeg(resized, imageStorageService.getStorageDir().resolve(fileName));
+
+                ProductImage image = new ProductImage();
+                image.setVariant(entry.getKey());
+                image.setSourceUrl(sourceUrl);
+                image.setUrl(ImageStorageService.URL_PREFIX + fileName);
+                image.setWidth(resized.getWidth());
+                image.setHeight(resized.getHeight());
+                images.add(image);
+            }
+
+            boolean saved = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                Product product = productRepository.findById(productId).orElse(null);
+                // Sản phẩm đã bị xóa hoặc đã đổi sang ảnh khác trong lúc đang resize
+                if (product == null || !sourceUrl.equals(product.getImageUrl())) {
+                    return false;
+                }
+                productImageRepository.deleteByProductId(productId);
+                images.forEach(image -> image.setProduct(product));
+                productImageRepository.saveAll(images);
+                return true;
+            }));
+            if (saved) {
+                productCacheService.evictProduct(productId);
+                productCacheService.bumpCatalogVersion();
+                logger.info("Generated " + images.size() + " image variants for product " + productId + " in "
+                        + (System.currentTimeMillis() - start) + " ms");
+            }
+        } catch (Exception e) {
+            logger.severe("Error generating image variants for product " + productId + ": " + e.getMessage());
+        }
+    }
+
+    private static BufferedImage resize(BufferedImage original, int maxSide) {
+        double scale = Math.min(1.0, (double) maxSide / Math.max(original.getWidth(), original.getHeight()));
+        int width = Math.max(1, (int) Math.round(original.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(original.getHeight() * scale));
+        // JPEG không có kênh alpha: vẽ lên nền trắng để ảnh PNG trong suốt không bị nền đen
+        BufferedImage resized = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = resized.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(original, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return resized;
+    }
+
+    // Ghi ra file tạm rồi đổi tên để request đang đọc ảnh không bao giờ thấy file ghi dở
+    private static void writeJpeg(BufferedImage image, Path destination) throws IOException {
+        if (Files.exists(destination)) {
+            return;
+        }
+        Path temp = Files.createTempFile(destination.getParent(), "resize-", ".tmp");
+        try {
+            ImageWriter writer = ImageIO.getImageWritersByFormatName("jpg").next();
+            try (ImageOutputStream output = ImageIO.createImageOutputStream(temp.toFile())) {
+                writer.setOutput(output);
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(JPEG_QUALITY);
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            Files.move(temp, destination, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package org.example.shoestorebackend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Lưu ảnh upload vào thư mục cấu hình app.images.dir, phục vụ qua URL /images/{tên file}.
+ * Tên file là hash nội dung nên cùng một ảnh chỉ lưu một lần và file đã có tên thì không bao giờ đổi nội dung.
+ */
+@Service
+public class ImageStorageService {
+    private static final Logger logger = Logger.getLogger(ImageStorageService.class.getName());
+
+    public static final String URL_PREFIX = "/images/";
+    // Số ký tự hex của SHA-256 dùng làm tên file (64 bit, đủ tránh trùng cho kho ảnh sản phẩm)
+    private static final int HASH_LENGTH = 16;
+    private static final Map<String, String> EXTENSIONS = Map.of(
+            "image/jpeg", "jpg",
+            "image/png", "png",
+            "image/gif", "gif");
+    // Tên do store() và pipeline resize sinh ra: {hash}.{ext} hoặc {hash}-{loại}.jpg
+    private static final Pattern CONTENT_HASHED_NAME =
+            Pattern.compile("[0-9a-f]{" + HASH_LENGTH + "}(-[a-z]+)?\\.(jpg|png|gif)");
+
+    private final Path storageDir;
+
+    public ImageStorageService(@Value("${app.images.dir:D:/shoe-images}") String storageDir) throws IOException {
+        this.storageDir = Paths.get(storageDir).toAbsolutePath().normalize();
+        Files.createDirectories(this.storageDir);
+    }
+
+    public Path getStorageDir() {
+        return storageDir;
+    }
+
+    /**
+     * Ghi file upload xuống đĩa theo luồng (không đọc cả file vào bộ nhớ), vừa ghi vừa tính hash,
+     * rồi đổi tên file tạm thành {hash}.{ext}. Trả về URL của ảnh gốc.
+     */
+    public String store(MultipartFile file) throws IOException {
+        String extension = EXTENSIONS.get(file.getContentType() != null
+                ? file.getContentType().toLowerCase(Locale.ROOT) : null);
+        if (extension == null) {
+            throw new IllegalArgumentException("Chỉ hỗ trợ ảnh JPEG, PNG hoặc GIF");
+        }
+
+        Path temp = Files.createTempFile(storageDir, "upload-", ".tmp");
+        try {
+            MessageDigest digest = newDigest();
+            try (InputStream input = new DigestInputStream(file.getInputStream(), digest);
+                 ReadableByteChannel source = Channels.newChannel(input);
+                 FileChannel target = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                long position = 0;
+                long transferred;
+                while ((transferred = target.transferFrom(source, position, 1 << 20)) > 0) {
+                    position += transferred;
+                }
+            }
+            String fileName = HexFormat.of().formatHex(digest.digest()).substring(0, HASH_LENGTH) + "." + extension;
+            Path destination = storageDir.resolve(fileName);
+            if (Files.exists(destination)) {
+                logger.info("Image already stored: " + fileName);
+            } else {
+                Files.move(temp, destination, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return URL_PREFIX + fileName;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Đường dẫn file trên đĩa của một URL /images/...; null nếu URL không thuộc thư mục ảnh
+    public Path resolve(String url) {
+        if (url == null || !url.startsWith(URL_PREFIX)) {
+            return null;
+        }
+        Path path = storageDir.resolve(url.substring(URL_PREFIX.length())).normalize();
+        return path.startsWith(storageDir) ? path : null;
+    }
+
+    // File có tên theo hash nội dung không bao giờ đổi nội dung, client được cache vĩnh viễn
+    public static boolean isContentHashed(String fileName) {
+        return fileName != null && CONTENT_HASHED_NAME.matcher(fileName).matches();
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package org.example.shoestorebackend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.shoestorebackend.entity.Order;
+import org.example.shoestorebackend.entity.ProductColor;
+import org.example.shoestorebackend.entity.ProductSize;
+import org.example.shoestorebackend.util.CsvUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Export đơn hàng cho kế toán, mỗi dòng là một sản phẩm trong đơn kèm thông tin đơn (CSV hoặc NDJSON).
+ * Đọc bằng cursor một chiều của MySQL và ghi thẳng ra response nên bộ nhớ dùng không phụ thuộc số đơn.
+ */
+@Service
+public class OrderExportService {
+    public static final String FORMAT_CSV = "csv";
+    public static final String FORMAT_NDJSON = "ndjson";
+
+    private static final List<String> COLUMNS = List.of(
+            "order_id", "created_at", "status", "payment_method", "user_id", "email",
+            "total_amount", "discount_amount", "item_id", "product_id", "model", "product_name",
+            "size", "color", "quantity", "price_at_time");
+
+    private static final String EXPORT_SQL =
+            "SELECT o.id AS order_id, o.created_at, o.status, o.payment_method, o.user_id, u.email, " +
+                    "o.total_amount, o.discount_amount, oi.id AS item_id, oi.product_id, p.model, p.name AS product_name, " +
+                    "pv.size_id, pv.color_id, oi.quantity, oi.price_at_time " +
+                    "FROM orders o " +
+                    "JOIN users u ON u.id = o.user_id " +
+                    "LEFT JOIN order_items oi ON oi.order_id = o.id " +
+                    "LEFT JOIN products p ON p.id = oi.product_id " +
+                    "LEFT JOIN product_variants pv ON pv.id = oi.variant_id";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductSizeService productSizeService;
+
+    @Autowired
+    private ProductColorService productColorService;
+
+    // toDate là ngày cuối cùng được tính (bao gồm cả ngày đó), giống trang đơn hàng của admin
+    public void export(String format, Order.Status status, LocalDate fromDate, LocalDate toDate,
+                       OutputStream output) throws IOException {
+        boolean ndjson = FORMAT_NDJSON.equalsIgnoreCase(format);
+        StringBuilder sql = new StringBuilder(EXPORT_SQL).append(" WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (status != null) {
+            sql.append(" AND o.status = ?");
+            args.add(status.name());
+        }
+        if (fromDate != null) {
+            sql.append(" AND o.created_at >= ?");
+            args.add(Timestamp.valueOf(fromDate.atStartOfDay()));
+        }
+        if (toDate != null) {
+            sql.append(" AND o.created_at < ?");
+            args.add(Timestamp.valueOf(toDate.plusDays(1).atStartOfDay()));
+        }
+        sql.append(" ORDER BY o.id, oi.id");
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        if (!ndjson) {
+            writer.write(CsvUtils.formatLine(COLUMNS.toArray()));
+        }
+        // fetchSize = Integer.MIN_VALUE: MySQL Connector/J trả từng dòng thay vì nạp cả kết quả vào bộ nhớ
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql.toString(),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(Integer.MIN_VALUE);
+            for (int i = 0; i < args.size(); i++) {
+                statement.setObject(i + 1, args.get(i));
+            }
+            return statement;
+        }, (RowCallbackHandler) rs -> {
+            Object[] values = readRow(rs);
+            try {
+                if (ndjson) {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    for (int i = 0; i < COLUMNS.size(); i++) {
+                        row.put(COLUMNS.get(i), values[i]);
+                    }
+                    writer.write(objectMapper.writeValueAsString(row));
+                    writer.write('\n');
+                } else {
+                    writer.write(CsvUtils.formatLine(values));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.flush();
+    }
+
+    private Object[] readRow(ResultSet rs) throws SQLException {
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        long sizeId = rs.getLong("size_id");
+        ProductSize size = rs.wasNull() ? null : productSizeService.findById(sizeId);
+        long colorId = rs.getLong("color_id");
+        ProductColor color = rs.wasNull() ? null : productColorService.findById(colorId);
+        return new Object[]{
+                rs.getLong("order_id"),
+                createdAt != null ? createdAt.toLocalDateTime().toString() : null,
+                rs.getString("status"),
+                rs.getString("payment_method"),
+                rs.getLong("user_id"),
+                rs.getString("email"),
+                rs.getObject("total_amount"),
+                rs.getObject("discount_amount"),
+                rs.getObject("item_id"),
+                rs.getObject("product_id"),
+                rs.getString("model"),
+                rs.getString("product_name"),
+                size != null ? size.getSize() : null,
+                color != null ? color.getColor() : null,
+                rs.getObject("quantity"),
+                rs.getObject("price_at_time")
+        };
+    }
+}
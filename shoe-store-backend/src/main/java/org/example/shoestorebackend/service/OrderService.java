@@ -1,8 +1,11 @@
 package org.example.shoestorebackend.service;
 
+import org.example.shoestorebackend.dto.AdminOrderSummaryDTO;
 import org.example.shoestorebackend.entity.*;
 import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.example.shoestorebackend.repository.OrderItemRepository;
@@ -15,7 +18,11 @@ import org.example.shoestorebackend.repository.CartItemRepository; // Giả đ
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class OrderService {
@@ -40,15 +47,38 @@ public class OrderService {
     @Autowired
     private CartItemRepository cartItemRepository; // Thêm dependency này
 
+    @Autowired
+    private ProductCacheService productCacheService;
+
+    @Autowired
+    private ProductSuggestionService productSuggestionService;
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @Autowired
+    private VariantAvailabilityIndex variantAvailabilityIndex;
+
+    @Autowired
+    private CartVersionService cartVersionService;
+
     @Transactional
     public Order createOrder(Long userId, List<CartItem> cartItems, Long discountCodeId, String orderNote, String paymentMethod) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("Người dùng không tồn tại: " + userId));
 
+        // Tải toàn bộ sản phẩm trong giỏ bằng một truy vấn
+        Map<Long, Product> productsById = productRepository.findAllById(cartItems.stream()
+                        .map(item -> item.getProduct().getId())
+                        .collect(Collectors.toSet())).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
         // Kiểm tra số lượng tồn kho từ ProductVariant
         for (CartItem cartItem : cartItems) {
-            Product product = productRepository.findById(cartItem.getProduct().getId())
-                    .orElseThrow(() -> new RuntimeException("Sản phẩm không tồn tại: " + cartItem.getProduct().getId()));
+            Product product = productsById.get(cartItem.getProduct().getId());
+            if (product == null) {
+                throw new RuntimeException("Sản phẩm không tồn tại: " + cartItem.getProduct().getId());
+            }
             ProductVariant variant = cartItem.getVariant();
 
             if (variant == null) {
@@ -56,6 +86,9 @@ public class OrderService {
             }
 
             int requestedQuantity = cartItem.getQuantity();
+            if (requestedQuantity <= 0) {
+                throw new RuntimeException("Số lượng không hợp lệ cho sản phẩm: " + product.getName());
+            }
 
             // Kiểm tra số lượng tồn kho
             if (variant.getQuantity() < requestedQuantity) {
@@ -66,6 +99,21 @@ public class OrderService {
 
         }
 
+        // Trừ tồn kho của mọi variant trong một batch UPDATE có điều kiện để không bán quá khi nhiều đơn đặt cùng lúc
+        Map<Long, Integer> quantitiesByVariant = cartItems.stream()
+                .collect(Collectors.groupingBy(item -> item.getVariant().getId(),
+                        Collectors.summingInt(CartItem::getQuantity)));
+        List<Long> outOfStock = productVariantRepository.decrementStockBatch(quantitiesByVariant);
+        if (!outOfStock.isEmpty()) {
+            CartItem cartItem = cartItems.stream()
+                    .filter(item -> item.getVariant().getId().equals(outOfStock.get(0)))
+                    .findFirst().get();
+            ProductVariant variant = cartItem.getVariant();
+            throw new RuntimeException("Hết hàng: Sản phẩm " + productsById.get(cartItem.getProduct().getId()).getName() +
+                    " với size " + variant.getSize().getSize() + " và color " + variant.getColor().getColor() +
+                    " không còn đủ " + quantitiesByVariant.get(variant.getId()) + " sản phẩm.");
+        }
+
         double totalAmount = cartItems.stream()
                 .mapToDouble(item -> item.getProduct().getPrice() * item.getQuantity())
                 .sum();
@@ -93,31 +141,48 @@ public class OrderService {
             }
         }
 
-        order = orderRepository.save(order);
-
-        // Lưu OrderItem và cập nhật ProductVariant
+        // OrderItem được lưu theo cascade cùng Order và gom thành một batch INSERT khi flush
         for (CartItem cartItem : cartItems) {
-            Product product = productRepository.findById(cartItem.getProduct().getId()).get();
-            ProductVariant variant = cartItem.getVariant();
+            Product product = productsById.get(cartItem.getProduct().getId());
 
             OrderItem orderItem = new OrderItem();
             orderItem.setOrder(order);
             orderItem.setProduct(product);
-            orderItem.setVariant(variant);
+            orderItem.setVariant(cartItem.getVariant());
             orderItem.setQuantity(cartItem.getQuantity());
             orderItem.setPriceAtTime(product.getPrice());
-            orderItemRepository.save(orderItem);
-
-            // Cập nhật và lưu lại variant
-            variant.setQuantity(variant.getQuantity() - cartItem.getQuantity());
-            productVariantRepository.save(variant);
+            order.getOrderItems().add(orderItem);
         }
+        order = orderRepository.save(order);
+
+        // Tồn kho đã thay đổi, bỏ chi tiết sản phẩm đang cache
+        Set<Long> orderedProductIds = cartItems.stream()
+                .map(item -> item.getProduct().getId())
+                .collect(Collectors.toSet());
+        variantAvailabilityIndex.refreshAfterCommit(orderedProductIds);
+        productCacheService.invalidateProductsAfterCommit(orderedProductIds);
+
+        productSuggestionService.recordSalesAfterCommit(cartItems.stream()
+                .collect(Collectors.groupingBy(item -> item.getProduct().getId(),
+                        Collectors.summingInt(CartItem::getQuantity))));
 
         // Xóa toàn bộ giỏ hàng của user sau khi đặt hàng thành công
         cartItemRepository.deleteByUserId(userId);
+        cartVersionService.reserve(userId);
 
-        return orderRepository.save(order);
+        return order;
     }
+    // Trang đơn hàng cho admin; toDate là ngày cuối cùng được tính (bao gồm cả ngày đó)
+    @Transactional(readOnly = true)
+    public Page<AdminOrderSummaryDTO> getOrderSummariesForAdmin(Order.Status status, Long userId, String paymentMethod,
+                                                                LocalDate fromDate, LocalDate toDate, Pageable pageable) {
+        return orderRepository.findAdminOrderSummaries(status, userId,
+                paymentMethod != null && !paymentMethod.isBlank() ? paymentMethod : null,
+                fromDate != null ? fromDate.atStartOfDay() : null,
+                toDate != null ? toDate.plusDays(1).atStartOfDay() : null,
+                pageable);
+    }
+
     @Transactional(readOnly = true)
     public List<Order> getAllOrders() {
         List<Order> orders = orderRepository.findAll();
@@ -159,7 +224,8 @@ public class OrderService {
 
     @Transactional
     public Order updateOrderStatus(Long orderId, Order.Status status) {
-        Order order = orderRepository.findById(orderId)
+        // Đọc trạng thái hiện tại dưới khóa: kiểm tra chuyển trạng thái, hoàn kho và cộng doanh thu chỉ chạy một lần
+        Order order = orderRepository.findByIdForUpdate(orderId)
                 .orElseThrow(() -> new RuntimeException("Đơn hàng không tồn tại: " + orderId));
 
         if (status == Order.Status.CANCELLED && (order.getStatus() == Order.Status.DELIVERED || order.getStatus() == Order.Status.CANCELLED)) {
@@ -168,13 +234,20 @@ public class OrderService {
 
         // Hoàn lại số lượng tồn kho nếu hủy đơn
         if (status == Order.Status.CANCELLED && (order.getStatus() == Order.Status.PENDING || order.getStatus() == Order.Status.PROCESSING)) {
-            for (OrderItem item : order.getOrderItems()) {
-                ProductVariant variant = item.getVariant();
-                variant.setQuantity(variant.getQuantity() + item.getQuantity());
-                productVariantRepository.save(variant);
-            }
+            productVariantRepository.incrementStockBatch(order.getOrderItems().stream()
+                    .collect(Collectors.groupingBy(item -> item.getVariant().getId(),
+                            Collectors.summingInt(OrderItem::getQuantity))));
+            Set<Long> restockedProductIds = order.getOrderItems().stream()
+                    .map(item -> item.getProduct().getId())
+                    .collect(Collectors.toSet());
+            variantAvailabilityIndex.refreshAfterCommit(restockedProductIds);
+            productCacheService.invalidateProductsAfterCommit(restockedProductIds);
+            productSuggestionService.recordSalesAfterCommit(order.getOrderItems().stream()
+                    .collect(Collectors.groupingBy(item -> item.getProduct().getId(),
+                            Collectors.summingInt(item -> -item.getQuantity()))));
         }
 
+        salesRollupService.onStatusChange(order, order.getStatus(), status);
         order.setStatus(status);
         order.setUpdatedAt(LocalDateTime.now());
         return orderRepository.save(order);
@@ -200,7 +273,8 @@ public class OrderService {
     }
     @Transactional
     public Order updateOrderForAdmin(Long orderId, Order.Status status) {
-        Order order = orderRepository.findById(orderId)
+        // Đọc trạng thái hiện tại dưới khóa: kiểm tra chuyển trạng thái, hoàn kho và cộng doanh thu chỉ chạy một lần
+        Order order = orderRepository.findByIdForUpdate(orderId)
                 .orElseThrow(() -> new RuntimeException("Đơn hàng không tồn tại: " + orderId));
 
         Order.Status currentStatus = order.getStatus();
@@ -228,13 +302,20 @@ public class OrderService {
         }
 
         if (status == Order.Status.CANCELLED && (currentStatus == Order.Status.PENDING || currentStatus == Order.Status.PROCESSING)) {
-            for (OrderItem item : order.getOrderItems()) {
-                ProductVariant variant = item.getVariant();
-                variant.setQuantity(variant.getQuantity() + item.getQuantity());
-                productVariantRepository.save(variant);
-            }
+            productVariantRepository.incrementStockBatch(order.getOrderItems().stream()
+                    .collect(Collectors.groupingBy(item -> item.getVariant().getId(),
+                            Collectors.summingInt(OrderItem::getQuantity))));
+            Set<Long> restockedProductIds = order.getOrderItems().stream()
+                    .map(item -> item.getProduct().getId())
+                    .collect(Collectors.toSet());
+            variantAvailabilityIndex.refreshAfterCommit(restockedProductIds);
+            productCacheService.invalidateProductsAfterCommit(restockedProductIds);
+            productSuggestionService.recordSalesAfterCommit(order.getOrderItems().stream()
+                    .collect(Collectors.groupingBy(item -> item.getProduct().getId(),
+                            Collectors.summingInt(item -> -item.getQuantity()))));
         }
 
+        salesRollupService.onStatusChange(order, order.getStatus(), status);
         order.setStatus(status);
         order.setUpdatedAt(LocalDateTime.now());
         return orderRepository.save(order);
@@ -0,0 +1,408 @@
+package org.example.shoestorebackend.service;
+
+import org.example.shoestorebackend.dto.ProductImportResultDTO;
+import org.example.shoestorebackend.entity.Product;
+import org.example.shoestorebackend.entity.ProductColor;
+import org.example.shoestorebackend.entity.ProductSize;
+import org.example.shoestorebackend.util.CsvUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Import/export catalog sản phẩm dạng CSV, mỗi dòng là một variant:
+ * model,name,price,category,gender,description,image_url,size,color,quantity.
+ * Các dòng cùng model phải liền nhau; thông tin sản phẩm lấy từ dòng đầu tiên của model,
+ * dòng để trống size/color/quantity nghĩa là sản phẩm chưa có variant.
+ * Import đọc file theo luồng và ghi theo từng lô sản phẩm bằng JDBC batch, mỗi lô một transaction;
+ * export đọc bằng cursor của MySQL nên không giữ cả catalog trong bộ nhớ.
+ */
+@Service
+public class ProductBulkService {
+    private static final Logger logger = Logger.getLogger(ProductBulkService.class.getName());
+
+    public static final List<String> CSV_COLUMNS = List.of(
+            "model", "name", "price", "category", "gender", "description", "image_url", "size", "color", "quantity");
+    private static final List<String> REQUIRED_COLUMNS = List.of("model", "name", "price", "category", "gender");
+    // Chỉ trả về tối đa ngần này dòng lỗi, errorCount vẫn đếm đủ
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private static final String EXPORT_SQL =
+            "SELECT p.model, p.name, p.price, p.category, p.gender, p.description, p.image_url, " +
+                    "pv.size_id, pv.color_id, pv.quantity " +
+                    "FROM products p LEFT JOIN product_variants pv ON pv.product_id = p.id " +
+                    "ORDER BY p.id, pv.id";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ProductSizeService productSizeService;
+
+    @Autowired
+    private ProductColorService productColorService;
+
+    @Autowired
+    private ProductCacheService productCacheService;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ProductSuggestionService productSuggestionService;
+
+    @Autowired
+    private VariantAvailabilityIndex variantAvailabilityIndex;
+
+    @Value("${product.import.chunk-size:500}")
+    private int chunkSize;
+
+    public ProductImportResultDTO importCsv(InputStream input) throws IOException {
+        ProductImportResultDTO result = new ProductImportResultDTO();
+        Set<String> flushedModels = new HashSet<>();
+        Map<String, ProductRow> chunk = new LinkedHashMap<>();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            String header = CsvUtils.readRecord(reader);
+            if (header == null) {
+                throw new IllegalArgumentException("File CSV rỗng");
+            }
+            Map<String, Integer> columns = parseHeader(header);
+
+            // Một bản ghi có thể trải nhiều dòng (mô tả có xuống dòng); lỗi được báo theo dòng bắt đầu bản ghi
+            String line;
+            int nextLineNumber = 2;
+            while ((line = CsvUtils.readRecord(reader)) != null) {
+                int lineNumber = nextLineNumber;
+                nextLineNumber += 1 + (int) line.chars().filter(c -> c == '\n').count();
+                if (line.isBlank()) {
+                    continue;
+                }
+                result.setTotalRows(result.getTotalRows() + 1);
+                String model = null;
+                try {
+                    List<String> fields = CsvUtils.parseLine(line);
+                    model = required(fields, columns, "model");
+                    String key = model.toLowerCase(Locale.ROOT);
+                    ProductRow product = chunk.get(key);
+                    if (product == null) {
+                        if (flushedModels.contains(key)) {
+                            throw new IllegalArgumentException("Các dòng của model " + model + " phải liền nhau");
+                        }
+                        if (chunk.size() >= chunkSize) {
+                            flush(chunk, result);
+                            chunk.keySet().forEach(flushedModels::add);
+                            chunk.clear();
+                        }
+                        product = parseProduct(fields, columns, lineNumber, model);
+                        chunk.put(key, product);
+                    }
+                    addVariant(product, fields, columns, lineNumber);
+                } catch (IllegalArgumentException e) {
+                    addError(result, lineNumber, model, e.getMessage());
+                }
+            }
+            flush(chunk, result);
+        } finally {
+            if (result.getImportedProducts() > 0) {
+                refreshCatalog();
+            }
+        }
+        logger.info("Imported " + result.getImportedProducts() + " products, " + result.getImportedVariants()
+                + " variants from " + result.getTotalRows() + " rows, " + result.getErrorCount() + " errors");
+        return result;
+    }
+
+    public void exportCsv(OutputStream output) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        writer.write(CsvUtils.formatLine(CSV_COLUMNS.toArray()));
+        // fetchSize = Integer.MIN_VALUE: MySQL Connector/J trả từng dòng thay vì nạp cả kết quả vào bộ nhớ
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(EXPORT_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(Integer.MIN_VALUE);
+            return statement;
+        }, (RowCallbackHandler) rs -> {
+            long sizeId = rs.getLong("size_id");
+            boolean hasVariant = !rs.wasNull();
+            ProductSize size = hasVariant ? productSizeService.findById(sizeId) : null;
+            ProductColor color = hasVariant ? productColorService.findById(rs.getLong("color_id")) : null;
+            try {
+                writer.write(CsvUtils.formatLine(
+                        rs.getString("model"),
+                        rs.getString("name"),
+                        BigDecimal.valueOf(rs.getDouble("price")).toPlainString(),
+                        rs.getString("category"),
+                        rs.getString("gender"),
+                        rs.getString("description"),
+                        rs.getString("image_url"),
+                        size != null ? size.getSize() : null,
+                        color != null ? color.getColor() : null,
+                        hasVariant ? rs.getInt("quantity") : null));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.flush();
+    }
+
+    private Map<String, Integer> parseHeader(String header) {
+        // Bỏ BOM do Excel thêm vào đầu file UTF-8
+        if (header.startsWith("\uFEFF")) {
+            header = header.substring(1);
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = CsvUtils.parseLine(header);
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        for (String column : REQUIRED_COLUMNS) {
+            if (!columns.containsKey(column)) {
+                throw new IllegalArgumentException("Thiếu cột bắt buộc: " + column);
+            }
+        }
+        return columns;
+    }
+
+    private ProductRow parseProduct(List<String> fields, Map<String, Integer> columns, int lineNumber, String model) {
+        ProductRow product = new ProductRow(lineNumber, model);
+        product.name = required(fields, columns, "name");
+        product.category = required(fields, columns, "category");
+        product.description = optional(fields, columns, "description");
+        product.imageUrl = optional(fields, columns, "image_url");
+        String priceValue = required(fields, columns, "price");
+        try {
+            product.price = Double.parseDouble(priceValue);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Giá không hợp lệ");
+        }
+        if (product.price <= 0) {
+            throw new IllegalArgumentException("Giá phải lớn hơn 0");
+        }
+        String genderValue = required(fields, columns, "gender");
+        try {
+            product.gender = Product.Gender.valueOf(genderValue.toLowerCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Giới tính không hợp lệ");
+        }
+        return product;
+    }
+
+    private void addVariant(ProductRow product, List<String> fields, Map<String, Integer> columns, int lineNumber) {
+        String sizeValue = optional(fields, columns, "size");
+        String colorValue = optional(fields, columns, "color");
+        String quantityValue = optional(fields, columns, "quantity");
+        if (sizeValue == null && colorValue == null && quantityValue == null) {
+            return;
+        }
+        if (sizeValue == null || colorValue == null || quantityValue == null) {
+            throw new IllegalArgumentException("Variant cần đủ size, color và quantity");
+        }
+        if (!ProductService.isAllowedSize(product.gender, sizeValue)) {
+            throw new IllegalArgumentException("Size " + sizeValue + " không hợp lệ cho giới tính " + product.gender);
+        }
+        int quantity;
+        try {
+            quantity = Integer.parseInt(quantityValue);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Số lượng không hợp lệ");
+        }
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Số lượng không được âm");
+        }
+        // Size/màu lấy từ từ điển trong bộ nhớ, giá trị mới được tạo một lần
+        long sizeId = productSizeService.findOrCreate(sizeValue).getId();
+        long colorId = productColorService.findOrCreate(colorValue).getId();
+        for (VariantRow existing : product.variants) {
+            if (existing.sizeId == sizeId && existing.colorId == colorId) {
+                throw new IllegalArgumentException("Trùng size " + sizeValue + " / màu " + colorValue
+                        + " với dòng " + existing.line);
+            }
+        }
+        product.variants.add(new VariantRow(lineNumber, sizeId, colorId, quantity));
+    }
+
+    // Ghi một lô sản phẩm trong một transaction; lỗi database thì cả lô được báo lỗi
+    private void flush(Map<String, ProductRow> chunk, ProductImportResultDTO result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<ProductRow> rows = new ArrayList<>(chunk.values());
+        List<ProductRow> duplicates = new ArrayList<>();
+        try {
+            List<ProductRow> inserted = new TransactionTemplate(transactionManager)
+                    .execute(status -> insertChunk(rows, duplicates));
+            for (ProductRow row : duplicates) {
+                addError(result, row.line, row.model, "Model " + row.model + " đã tồn tại");
+            }
+            result.setImportedProducts(result.getImportedProducts() + inserted.size());
+            result.setImportedVariants(result.getImportedVariants()
+                    + inserted.stream().mapToInt(row -> row.variants.size()).sum());
+        } catch (Exception e) {
+            logger.severe("Error importing product chunk: " + e.getMessage());
+            for (ProductRow row : rows) {
+                addError(result, row.line, row.model, "Lỗi ghi dữ liệu: " + e.getMessage());
+            }
+        }
+    }
+
+    private List<ProductRow> insertChunk(List<ProductRow> rows, List<ProductRow> duplicates) {
+        NamedParameterJdbcTemplate namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        List<String> models = rows.stream().map(row -> row.model).toList();
+        Set<String> existingModels = new HashSet<>();
+        namedJdbcTemplate.query("SELECT model FROM products WHERE model IN (:models)",
+                new MapSqlParameterSource("models", models),
+                (RowCallbackHandler) rs -> existingModels.add(rs.getString("model").toLowerCase(Locale.ROOT)));
+
+        List<ProductRow> newRows = new ArrayList<>();
+        for (ProductRow row : rows) {
+            if (existingModels.contains(row.model.toLowerCase(Locale.ROOT))) {
+                duplicates.add(row);
+            } else {
+                newRows.add(row);
+            }
+        }
+        if (newRows.isEmpty()) {
+            return newRows;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO products (name, model, price, description, image_url, category, gender, created_at) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                newRows, newRows.size(),
+                (ps, row) -> {
+                    ps.setString(1, row.name);
+                    ps.setString(2, row.model);
+                    ps.setDouble(3, row.price);
+                    ps.setString(4, row.description);
+                    ps.setString(5, row.imageUrl);
+                    ps.setString(6, row.category);
+                    ps.setString(7, row.gender.name());
+                    ps.setTimestamp(8, now);
+                });
+
+        // model là unique nên đọc lại id theo model thay vì lấy generated keys từng dòng
+        Map<String, Long> idsByModel = new HashMap<>();
+        namedJdbcTemplate.query("SELECT id, model FROM products WHERE model IN (:models)",
+                new MapSqlParameterSource("models", newRows.stream().map(row -> row.model).toList()),
+                (RowCallbackHandler) rs -> idsByModel.put(rs.getString("model").toLowerCase(Locale.ROOT), rs.getLong("id")));
+
+        List<long[]> variants = new ArrayList<>();
+        for (ProductRow row : newRows) {
+            long productId = idsByModel.get(row.model.toLowerCase(Locale.ROOT));
+            for (VariantRow variant : row.variants) {
+                variants.add(new long[]{productId, variant.sizeId, variant.colorId, variant.quantity});
+            }
+        }
+        if (!variants.isEmpty()) {
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO product_variants (product_id, size_id, color_id, quantity) VALUES (?, ?, ?, ?)",
+                    variants, variants.size(),
+                    (ps, variant) -> {
+                        ps.setLong(1, variant[0]);
+                        ps.setLong(2, variant[1]);
+                        ps.setLong(3, variant[2]);
+                        ps.setInt(4, (int) variant[3]);
+                    });
+        }
+        return newRows;
+    }
+
+    // Dữ liệu được ghi thẳng bằng JDBC nên các index/cache trong bộ nhớ phải nạp lại
+    private void refreshCatalog() {
+        variantAvailabilityIndex.rebuild();
+        productSearchIndex.rebuild();
+        productSuggestionService.rebuildFromDatabase();
+        productCacheService.bumpCatalogVersion();
+    }
+
+    private void addError(ProductImportResultDTO result, int line, String model, String message) {
+        result.setErrorCount(result.getErrorCount() + 1);
+        if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+            result.getErrors().add(new ProductImportResultDTO.RowError(line, model, message));
+        }
+    }
+
+    private static String required(List<String> fields, Map<String, Integer> columns, String column) {
+        String value = optional(fields, columns, column);
+        if (value == null) {
+            throw new IllegalArgumentException("Thiếu giá trị cột " + column);
+        }
+        return value;
+    }
+
+    private static String optional(List<String> fields, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static final class ProductRow {
+        private final int line;
+        private final String model;
+        private String name;
+        private Double price;
+        private String description;
+        private String imageUrl;
+        private String category;
+        private Product.Gender gender;
+        private final List<VariantRow> variants = new ArrayList<>();
+
+        private ProductRow(int line, String model) {
+            this.line = line;
+            this.model = model;
+        }
+    }
+
+    private static final class VariantRow {
+        private final int line;
+        private final long sizeId;
+        private final long colorId;
+        private final int quantity;
+
+        private VariantRow(int line, long sizeId, long colorId, int quantity) {
+            this.line = line;
+            this.sizeId = sizeId;
+            this.colorId = colorId;
+            this.quantity = quantity;
+        }
+    }
+}
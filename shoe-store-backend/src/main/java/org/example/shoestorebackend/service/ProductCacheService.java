@@ -0,0 +1,92 @@
+package org.example.shoestorebackend.service;
+
+import org.example.shoestorebackend.dto.ProductDTO;
+import org.example.shoestorebackend.entity.Product;
+import org.example.shoestorebackend.entity.ProductFeature;
+import org.example.shoestorebackend.util.BoundedCache;
+import org.example.shoestorebackend.util.TransactionUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+@Service
+public class ProductCacheService {
+    private final BoundedCache<Long, ProductDTO> productDetails;
+    private final BoundedCache<Long, List<ProductFeature>> productFeatures;
+    private final BoundedCache<String, Page<ProductDTO>> listingPages;
+
+    // Phiên bản catalog nằm trong key của trang danh sách, tăng lên khi có thay đổi
+    // nên các trang cũ không bao giờ được đọc lại và tự bị đẩy ra theo LRU/TTL
+    private final AtomicLong catalogVersion = new AtomicLong();
+
+    public ProductCacheService(@Value("${cache.product.max-size:1000}") int maxSize,
+                               @Value("${cache.product.ttl-seconds:300}") long ttlSeconds,
+                               @Value("${cache.listing.max-size:500}") int listingMaxSize,
+                               @Value("${cache.listing.ttl-seconds:120}") long listingTtlSeconds) {
+        this.productDetails = new BoundedCache<>(maxSize, Duration.ofSeconds(ttlSeconds));
+        this.productFeatures = new BoundedCache<>(maxSize, Duration.ofSeconds(ttlSeconds));
+        this.listingPages = new BoundedCache<>(listingMaxSize, Duration.ofSeconds(listingTtlSeconds));
+    }
+
+    public ProductDTO getProduct(Long productId, Function<Long, ProductDTO> loader) {
+        return productDetails.getOrLoad(productId, loader);
+    }
+
+    public List<ProductFeature> getFeatures(Long productId, Function<Long, List<ProductFeature>> loader) {
+        return productFeatures.getOrLoad(productId, loader);
+    }
+
+    public Page<ProductDTO> getListingPage(String category, Product.Gender gender, Pageable pageable,
+                                           Supplier<Page<ProductDTO>> loader) {
+        String key = catalogVersion.get() + "|" + category.toLowerCase() + "|" + gender + "|"
+                + pageable.getPageNumber() + "|" + pageable.getPageSize() + "|" + pageable.getSort();
+        return listingPages.getOrLoad(key, k -> loader.get());
+    }
+
+    public void evictProduct(Long productId) {
+        productDetails.invalidate(productId);
+        productFeatures.invalidate(productId);
+    }
+
+    // Tăng sau mỗi lần sản phẩm (giá, tên, ảnh, tồn kho) thay đổi và đã commit
+    public long getCatalogVersion() {
+        return catalogVersion.get();
+    }
+
+    public long bumpCatalogVersion() {
+        return catalogVersion.incrementAndGet();
+    }
+
+    // Xóa cache sau khi transaction commit để request đồng thời không nạp lại dữ liệu cũ
+    public void invalidateProductsAfterCommit(Collection<Long> productIds) {
+        TransactionUtils.afterCommit(() -> invalidateProducts(productIds));
+    }
+
+    public void invalidateProductAfterCommit(Long productId) {
+        invalidateProductsAfterCommit(List.of(productId));
+    }
+
+    private void invalidateProducts(Collection<Long> productIds) {
+        productIds.forEach(this::evictProduct);
+        bumpCatalogVersion();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("productDetails", productDetails.getStats());
+        stats.put("productFeatures", productFeatures.getStats());
+        stats.put("listingPages", listingPages.getStats());
+        stats.put("catalogVersion", catalogVersion.get());
+        return stats;
+    }
+}
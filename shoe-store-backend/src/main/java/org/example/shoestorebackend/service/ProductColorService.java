@@ -2,35 +2,125 @@ package org.example.shoestorebackend.service;
 
 import org.example.shoestorebackend.dto.ProductColorDTO;
 import org.example.shoestorebackend.entity.ProductColor;
-import org.example.shoestorebackend.entity.ProductSize;
 import org.example.shoestorebackend.repository.ProductColorRepository;
+import org.example.shoestorebackend.util.DictionaryCache;
+import org.example.shoestorebackend.util.TransactionUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
+import java.util.logging.Logger;
 
 @Service
 public class ProductColorService {
+    private static final Logger logger = Logger.getLogger(ProductColorService.class.getName());
+
     @Autowired
     private ProductColorRepository productColorRepository;
 
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Bảng color rất nhỏ và gần như không đổi nên được giữ toàn bộ trong bộ nhớ
+    private final DictionaryCache<ProductColor> dictionary =
+            new DictionaryCache<>(ProductColor::getId, ProductColor::getColor);
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadDictionary() {
+        dictionary.load(productColorRepository.findAll());
+        logger.info("Loaded color dictionary: " + dictionary.size() + " entries");
+    }
+
     public ProductColor save(ProductColor productColor) {
-        return productColorRepository.save(productColor);
+        ProductColor saved = productColorRepository.save(productColor);
+        TransactionUtils.afterCommit(() -> dictionary.put(saved));
+        return saved;
     }
 
     public ProductColorDTO save(ProductColorDTO productColorDTO) {
         ProductColor productColor = new ProductColor();
         productColor.setId(productColorDTO.getId());
         productColor.setColor(productColorDTO.getColor());
-        ProductColor savedColor = productColorRepository.save(productColor);
+        ProductColor savedColor = save(productColor);
         return new ProductColorDTO(savedColor.getId(), savedColor.getColor());
     }
 
     public List<ProductColorDTO> getColorsByProductId(Long productId) {
         return List.of(); // Logic cũ không hợp lệ, bạn có thể lấy từ ProductVariant nếu cần
     }
+
+    // Tra theo id / giá trị trong bộ nhớ, không tạo mới; không có thì đọc database
+    // (bản ghi do instance khác hoặc SQL trực tiếp thêm vào sau khi nạp từ điển)
+    public ProductColor findById(Long id) {
+        ensureLoaded();
+        if (id == null) {
+            return null;
+        }
+        ProductColor cached = dictionary.getById(id);
+        return cached != null ? cached : remember(productColorRepository.findById(id).orElse(null));
+    }
+
+    public ProductColor findByValue(String colorValue) {
+        ensureLoaded();
+        if (colorValue == null) {
+            return null;
+        }
+        ProductColor cached = dictionary.getByValue(colorValue);
+        return cached != null ? cached : remember(productColorRepository.findByColor(colorValue.trim()).orElse(null));
+    }
+
+    // Chỉ đưa vào bộ nhớ sau khi transaction hiện tại commit, tránh giữ bản ghi chưa commit bị rollback
+    private ProductColor remember(ProductColor loaded) {
+        if (loaded != null) {
+            TransactionUtils.afterCommit(() -> dictionary.put(loaded));
+        }
+        return loaded;
+    }
+
     public ProductColor findOrCreate(String colorValue) {
-        return productColorRepository.findByColor(colorValue.trim())
-                .orElseGet(() -> productColorRepository.save(new ProductColor(null, colorValue.trim())));
+        String value = colorValue.trim();
+        ProductColor cached = findByValue(value);
+        if (cached != null) {
+            return cached;
+        }
+        // Khóa để các request đồng thời không cùng insert một giá trị
+        synchronized (dictionary) {
+            cached = dictionary.getByValue(value);
+            if (cached != null) {
+                return cached;
+            }
+            ProductColor created = insertOrLoad(value);
+            dictionary.put(created);
+            return created;
+        }
+    }
+
+    // Insert trong transaction riêng để giá trị mới được commit ngay trước khi đưa vào bộ nhớ;
+    // nếu instance khác vừa insert cùng giá trị (vi phạm unique) thì đọc lại bản ghi đó
+    private ProductColor insertOrLoad(String value) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            return transaction.execute(status -> productColorRepository.saveAndFlush(new ProductColor(null, value)));
+        } catch (DataIntegrityViolationException e) {
+            return transaction.execute(status -> productColorRepository.findByColor(value))
+                    .orElseThrow(() -> new RuntimeException("Không thể tạo color: " + value));
+        }
+    }
+
+    private void ensureLoaded() {
+        if (!dictionary.isLoaded()) {
+            synchronized (dictionary) {
+                if (!dictionary.isLoaded()) {
+                    loadDictionary();
+                }
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -5,13 +5,30 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.example.shoestorebackend.repository.ProductFeatureRepository;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 public class ProductFeatureService {
     @Autowired
     private ProductFeatureRepository productFeatureRepository;
+
+    @Autowired
+    private ProductCacheService productCacheService;
+
     public List<ProductFeature> getFeaturesByProductId(Long productId) {
-        return productFeatureRepository.findByProductId(productId);
+        return productCacheService.getFeatures(productId, productFeatureRepository::findByProductId);
+    }
+
+    // Lấy features của nhiều sản phẩm trong một truy vấn, nhóm theo productId
+    public Map<Long, List<ProductFeature>> getFeaturesByProductIds(Collection<Long> productIds) {
+        if (productIds == null || productIds.isEmpty()) {
+            return new HashMap<>();
+        }
+        return productFeatureRepository.findByProductIdIn(productIds).stream()
+                .collect(Collectors.groupingBy(feature -> feature.getProduct().getId()));
     }
 }
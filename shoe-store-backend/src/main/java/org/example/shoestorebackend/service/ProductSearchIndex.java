@@ -0,0 +1,267 @@
+package org.example.shoestorebackend.service;
+
+import org.example.shoestorebackend.entity.Product;
+import org.example.shoestorebackend.entity.ProductFeature;
+import org.example.shoestorebackend.repository.ProductFeatureRepository;
+import org.example.shoestorebackend.repository.ProductRepository;
+import org.example.shoestorebackend.util.TextNormalizer;
+import org.example.shoestorebackend.util.TransactionUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Inverted index trong bộ nhớ cho tìm kiếm sản phẩm theo tên, model, mô tả, danh mục và features.
+ * Mỗi từ (đã bỏ dấu) trỏ tới danh sách sản phẩm chứa nó kèm trọng số theo trường,
+ * nên thời gian tìm kiếm tỉ lệ với số từ khớp chứ không phải kích thước catalog.
+ */
+@Service
+public class ProductSearchIndex {
+    private static final Logger logger = Logger.getLogger(ProductSearchIndex.class.getName());
+
+    private static final float NAME_WEIGHT = 3.0f;
+    private static final float MODEL_WEIGHT = 3.0f;
+    private static final float CATEGORY_WEIGHT = 2.0f;
+    private static final float FEATURE_WEIGHT = 1.5f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+    // Từ chỉ khớp tiền tố (vd "gia" khớp "giay") được tính nửa điểm
+    private static final float PREFIX_MATCH_FACTOR = 0.5f;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductFeatureRepository productFeatureRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, Map<Long, Float>> postings = new TreeMap<>();
+    private final Map<Long, SearchDocument> documents = new HashMap<>();
+    private volatile boolean ready = false;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        try {
+            long start = System.currentTimeMillis();
+            Map<Long, List<ProductFeature>> featuresByProduct = productFeatureRepository.findAll().stream()
+                    .collect(Collectors.groupingBy(feature -> feature.getProduct().getId()));
+            List<SearchDocument> newDocuments = productRepository.findAll().stream()
+                    .map(product -> buildDocument(product, featuresByProduct.getOrDefault(product.getId(), new ArrayList<>())))
+                    .collect(Collectors.toList());
+
+            lock.writeLock().lock();
+            try {
+                postings.clear();
+                documents.clear();
+                newDocuments.forEach(this::addDocument);
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            logger.info("Built product search index: " + newDocuments.size() + " products, "
+                    + postings.size() + " terms in " + (System.currentTimeMillis() - start) + " ms");
+        } catch (Exception e) {
+            logger.severe("Error building product search index, falling back to database search: " + e.getMessage());
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Gọi trong transaction ghi: dữ liệu được chụp lại ngay, index chỉ thay đổi sau khi commit
+    public void indexAfterCommit(Product product, List<ProductFeature> features) {
+        SearchDocument document = buildDocument(product, features);
+        TransactionUtils.afterCommit(() -> index(document));
+    }
+
+    public void removeAfterCommit(Long productId) {
+        TransactionUtils.afterCommit(() -> remove(productId));
+    }
+
+    private void index(SearchDocument document) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(document.getProductId());
+            addDocument(document);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Tìm các sản phẩm chứa tất cả các từ trong câu truy vấn (khớp đầy đủ hoặc theo tiền tố),
+     * sắp xếp theo điểm liên quan giảm dần.
+     */
+    public List<SearchHit> search(String query) {
+        List<String> queryTerms = TextNormalizer.tokenize(query);
+        List<SearchHit> hits = new ArrayList<>();
+        if (queryTerms.isEmpty()) {
+            return hits;
+        }
+
+        lock.readLock().lock();
+        try {
+            Map<Long, Double> scores = null;
+            for (String queryTerm : queryTerms.stream().distinct().collect(Collectors.toList())) {
+                Map<Long, Double> termScores = scoreTerm(queryTerm);
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    Map<Long, Double> intersection = new HashMap<>();
+                    for (Map.Entry<Long, Double> entry : termScores.entrySet()) {
+                        Double previous = scores.get(entry.getKey());
+                        if (previous != null) {
+                            intersection.put(entry.getKey(), previous + entry.getValue());
+                        }
+                    }
+                    scores = intersection;
+                }
+                if (scores.isEmpty()) {
+                    return hits;
+                }
+            }
+
+            for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+                SearchDocument document = documents.get(entry.getKey());
+                hits.add(new SearchHit(document.getProductId(), entry.getValue(), document.getName(),
+                        document.getPrice(), document.getCreatedAt()));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        hits.sort((a, b) -> {
+            int byScore = Double.compare(b.getScore(), a.getScore());
+            return byScore != 0 ? byScore : Long.compare(b.getProductId(), a.getProductId());
+        });
+        return hits;
+    }
+
+    // Điểm của một từ truy vấn cho từng sản phẩm: lấy điểm cao nhất trong các từ khớp
+    private Map<Long, Double> scoreTerm(String queryTerm) {
+        Map<Long, Double> termScores = new HashMap<>();
+        NavigableMap<String, Map<Long, Float>> matches =
+                postings.subMap(queryTerm, true, queryTerm + Character.MAX_VALUE, false);
+        for (Map.Entry<String, Map<Long, Float>> match : matches.entrySet()) {
+            double factor = match.getKey().equals(queryTerm) ? 1.0 : PREFIX_MATCH_FACTOR;
+            for (Map.Entry<Long, Float> posting : match.getValue().entrySet()) {
+                termScores.merge(posting.getKey(), posting.getValue() * factor, Math::max);
+            }
+        }
+        return termScores;
+    }
+
+    private SearchDocument buildDocument(Product product, List<ProductFeature> features) {
+        Map<String, Float> termWeights = new HashMap<>();
+        addField(termWeights, product.getName(), NAME_WEIGHT);
+        addField(termWeights, product.getModel(), MODEL_WEIGHT);
+        addField(termWeights, product.getCategory(), CATEGORY_WEIGHT);
+        addField(termWeights, product.getDescription(), DESCRIPTION_WEIGHT);
+        if (features != null) {
+            for (ProductFeature feature : features) {
+                addField(termWeights, feature.getFeature(), FEATURE_WEIGHT);
+            }
+        }
+        return new SearchDocument(product.getId(), product.getName(), product.getPrice(),
+                product.getCreatedAt(), termWeights);
+    }
+
+    private void addField(Map<String, Float> termWeights, String text, float weight) {
+        for (String term : TextNormalizer.tokenize(text)) {
+            termWeights.merge(term, weight, Float::sum);
+        }
+    }
+
+    private void addDocument(SearchDocument document) {
+        documents.put(document.getProductId(), document);
+        for (Map.Entry<String, Float> entry : document.getTermWeights().entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), term -> new HashMap<>())
+                    .put(document.getProductId(), entry.getValue());
+        }
+    }
+
+    private void removeDocument(Long productId) {
+        SearchDocument existing = documents.remove(productId);
+        if (existing == null) {
+            return;
+        }
+        for (String term : existing.getTermWeights().keySet()) {
+            Map<Long, Float> termPostings = postings.get(term);
+            if (termPostings != null) {
+                termPostings.remove(productId);
+                if (termPostings.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    private static class SearchDocument {
+        private final Long productId;
+        private final String name;
+        private final Double price;
+        private final LocalDateTime createdAt;
+        private final Map<String, Float> termWeights;
+
+        private SearchDocument(Long productId, String name, Double price, LocalDateTime createdAt,
+                               Map<String, Float> termWeights) {
+            this.productId = productId;
+            this.name = name;
+            this.price = price;
+            this.createdAt = createdAt;
+            this.termWeights = termWeights;
+        }
+
+        public Long getProductId() { return productId; }
+        public String getName() { return name; }
+        public Double getPrice() { return price; }
+        public LocalDateTime getCreatedAt() { return createdAt; }
+        public Map<String, Float> getTermWeights() { return termWeights; }
+    }
+
+    public static class SearchHit {
+        private final Long productId;
+        private final double score;
+        private final String name;
+        private final Double price;
+        private final LocalDateTime createdAt;
+
+        public SearchHit(Long productId, double score, String name, Double price, LocalDateTime createdAt) {
+            this.productId = productId;
+            this.score = score;
+            this.name = name;
+            this.price = price;
+            this.createdAt = createdAt;
+        }
+
+        public Long getProductId() { return productId; }
+        public double getScore() { return score; }
+        public String getName() { return name; }
+        public Double getPrice() { return price; }
+        public LocalDateTime getCreatedAt() { return createdAt; }
+    }
+}
@@ -1,23 +1,39 @@
 package org.example.shoestorebackend.service;
 
+import jakarta.persistence.criteria.Predicate;
+import org.example.shoestorebackend.dto.CursorPageDTO;
 import org.example.shoestorebackend.dto.ProductColorDTO;
 import org.example.shoestorebackend.dto.ProductDTO;
 import org.example.shoestorebackend.dto.ProductSizeDTO;
 import org.example.shoestorebackend.dto.ProductVariantDTO;
 import org.example.shoestorebackend.entity.Product;
 import org.example.shoestorebackend.entity.ProductColor;
+import org.example.shoestorebackend.entity.ProductImage;
 import org.example.shoestorebackend.entity.ProductSize;
 import org.example.shoestorebackend.entity.ProductVariant;
+import org.example.shoestorebackend.repository.ProductFeatureRepository;
+import org.example.shoestorebackend.repository.ProductImageRepository;
 import org.example.shoestorebackend.repository.ProductRepository;
+import org.example.shoestorebackend.util.ProductCursor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -37,15 +53,43 @@ public class ProductService {
     @Autowired
     private ProductVariantService productVariantService;
 
+    @Autowired
+    private ProductCacheService productCacheService;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private VariantAvailabilityIndex variantAvailabilityIndex;
+
+    @Autowired
+    private ProductSuggestionService productSuggestionService;
+
+    @Autowired
+    private ProductFeatureRepository productFeatureRepository;
+
+    @Autowired
+    private ProductImageRepository productImageRepository;
+
+    @Autowired
+    private ImagePipelineService imagePipelineService;
+
     private static final List<String> ADULT_SIZES = Arrays.asList("36", "37", "38", "39", "40", "41", "42", "43", "44", "45");
     private static final List<String> KID_SIZES = Arrays.asList("33", "34", "35", "36", "37", "38", "39", "40");
+    // Số sản phẩm tối đa mỗi trang cursor, giống giới hạn trang đơn hàng của admin
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+
+    // Size hợp lệ theo giới tính: trẻ em dùng KID_SIZES, còn lại dùng ADULT_SIZES
+    static boolean isAllowedSize(Product.Gender gender, String sizeValue) {
+        return gender == Product.Gender.tre_em ? KID_SIZES.contains(sizeValue) : ADULT_SIZES.contains(sizeValue);
+    }
 
     @Transactional(readOnly = true)
     public Page<ProductDTO> getAllProducts(Pageable pageable) {
         try {
             logger.info("Fetching all products with pageable: " + pageable);
             Page<Product> productPage = productRepository.findAll(pageable);
-            return productPage.map(this::convertToProductDTO);
+            return convertToProductDTOs(productPage);
         } catch (Exception e) {
             logger.severe("Error fetching paged products: " + e.getMessage());
             throw new RuntimeException("Failed to fetch paged products: " + e.getMessage());
@@ -56,9 +100,11 @@ public class ProductService {
     public ProductDTO getProductById(Long id) {
         try {
             logger.info("Fetching product by id: " + id);
-            Product product = productRepository.findById(id)
-                    .orElseThrow(() -> new RuntimeException("Product not found with id: " + id));
-            return convertToProductDTO(product);
+            return productCacheService.getProduct(id, productId -> {
+                Product product = productRepository.findById(productId)
+                        .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId));
+                return convertToProductDTO(product);
+            });
         } catch (Exception e) {
             logger.severe("Error fetching product by id: " + e.getMessage());
             throw new RuntimeException("Failed to fetch product: " + e.getMessage());
@@ -75,7 +121,7 @@ public class ProductService {
             logger.info("Fetching products for category: " + categoryName + " - page: " + page + ", size: " + size);
             Pageable pageable = PageRequest.of(page, size);
             Page<Product> productPage = productRepository.findByCategoryName(categoryName, pageable);
-            return productPage.map(this::convertToProductDTO);
+            return convertToProductDTOs(productPage);
         } catch (Exception e) {
             logger.severe("Error fetching products by category with pagination: " + e.getMessage());
             throw new RuntimeException("Failed to fetch products by category with pagination: " + e.getMessage());
@@ -93,8 +139,32 @@ public class ProductService {
             String trimmedKeyword = keyword.trim().toLowerCase();
             logger.info("Searching products with keyword: " + trimmedKeyword + " - page: " + pageable.getPageNumber() + ", size: " + pageable.getPageSize());
 
-            Page<Product> productPage = productRepository.searchByKeyword(trimmedKeyword, pageable);
-            return productPage.map(this::convertToProductDTO);
+            if (!productSearchIndex.isReady()) {
+                Page<Product> productPage = productRepository.searchByKeyword(trimmedKeyword, pageable);
+                return convertToProductDTOs(productPage);
+            }
+
+            List<ProductSearchIndex.SearchHit> hits = new ArrayList<>(productSearchIndex.search(trimmedKeyword));
+            Comparator<ProductSearchIndex.SearchHit> comparator = searchHitComparator(pageable.getSort());
+            if (comparator != null) {
+                hits.sort(comparator);
+            }
+
+            int fromIndex = (int) Math.min(pageable.getOffset(), hits.size());
+            int toIndex = Math.min(fromIndex + pageable.getPageSize(), hits.size());
+            List<Long> pageIds = hits.subList(fromIndex, toIndex).stream()
+                    .map(ProductSearchIndex.SearchHit::getProductId)
+                    .collect(Collectors.toList());
+
+            // Lấy sản phẩm của trang hiện tại rồi giữ đúng thứ tự của kết quả tìm kiếm
+            Map<Long, Product> productsById = productRepository.findAllById(pageIds).stream()
+                    .collect(Collectors.toMap(Product::getId, Function.identity()));
+            List<Product> pageProducts = pageIds.stream()
+                    .map(productsById::get)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+
+            return convertToProductDTOs(new PageImpl<>(pageProducts, pageable, hits.size()));
         } catch (Exception e) {
             logger.severe("Error searching products with pagination: " + e.getMessage());
             throw new RuntimeException("Failed to search products with pagination: " + e.getMessage());
@@ -134,7 +204,7 @@ public class ProductService {
                         .filter(variant -> {
                             String sizeValue = variant.getSize() != null ? variant.getSize().getSize() : null;
                             String colorValue = variant.getColor() != null ? variant.getColor().getColor() : null;
-                            boolean sizeValid = sizeValue == null || (gender == Product.Gender.tre_em ? KID_SIZES.contains(sizeValue) : ADULT_SIZES.contains(sizeValue));
+                            boolean sizeValid = sizeValue == null || isAllowedSize(gender, sizeValue);
                             boolean colorValid = colorValue != null;
                             return sizeValid && colorValid;
                         })
@@ -165,6 +235,11 @@ public class ProductService {
 
             // Lưu lại sản phẩm với variants đã set
             Product finalProduct = productRepository.save(savedProduct);
+            variantAvailabilityIndex.refreshAfterCommit(List.of(finalProduct.getId()));
+            productCacheService.invalidateProductAfterCommit(finalProduct.getId());
+            productSearchIndex.indexAfterCommit(finalProduct, new ArrayList<>());
+            productSuggestionService.upsertAfterCommit(finalProduct);
+            imagePipelineService.processAfterCommit(finalProduct.getId(), finalProduct.getImageUrl());
             return convertToProductDTO(finalProduct);
 
         } catch (Exception e) {
@@ -206,7 +281,7 @@ public class ProductService {
                 String sizeValue = variantDTO.getSize() != null ? variantDTO.getSize().getSize() : null;
                 String colorValue = variantDTO.getColor() != null ? variantDTO.getColor().getColor() : null;
 
-                boolean sizeValid = sizeValue == null || (gender == Product.Gender.tre_em ? KID_SIZES.contains(sizeValue) : ADULT_SIZES.contains(sizeValue));
+                boolean sizeValid = sizeValue == null || isAllowedSize(gender, sizeValue);
                 boolean colorValid = colorValue != null;
 
                 if (!sizeValid || !colorValid) continue;
@@ -252,6 +327,11 @@ public class ProductService {
             }
 
             Product finalProduct = productRepository.save(product);
+            variantAvailabilityIndex.refreshAfterCommit(List.of(id));
+            productCacheService.invalidateProductAfterCommit(id);
+            productSearchIndex.indexAfterCommit(finalProduct, productFeatureRepository.findByProductId(id));
+            productSuggestionService.upsertAfterCommit(finalProduct);
+            imagePipelineService.processAfterCommit(finalProduct.getId(), finalProduct.getImageUrl());
             return convertToProductDTO(finalProduct);
         } catch (Exception e) {
             logger.severe("Error updating product: " + e.getMessage());
@@ -266,6 +346,10 @@ public class ProductService {
             Product product = productRepository.findById(id)
                     .orElseThrow(() -> new RuntimeException("Product not found with id: " + id));
             productRepository.delete(product);
+            productCacheService.invalidateProductAfterCommit(id);
+            productSearchIndex.removeAfterCommit(id);
+            variantAvailabilityIndex.removeAfterCommit(id);
+            productSuggestionService.removeAfterCommit(id);
             logger.info("Deleted product with id: " + id);
         } catch (Exception e) {
             logger.severe("Error deleting product: " + e.getMessage());
@@ -273,7 +357,82 @@ public class ProductService {
         }
     }
 
+    // Sắp xếp kết quả tìm kiếm theo tham số sort; không có sort thì giữ thứ tự theo độ liên quan
+    private Comparator<ProductSearchIndex.SearchHit> searchHitComparator(Sort sort) {
+        Sort.Order order = sort.stream().findFirst().orElse(null);
+        if (order == null) {
+            return null;
+        }
+        Comparator<ProductSearchIndex.SearchHit> comparator;
+        switch (order.getProperty()) {
+            case "id":
+                comparator = Comparator.comparing(ProductSearchIndex.SearchHit::getProductId);
+                break;
+            case "price":
+                comparator = Comparator.comparing(ProductSearchIndex.SearchHit::getPrice,
+                        Comparator.nullsLast(Comparator.naturalOrder()));
+                break;
+            case "name":
+                comparator = Comparator.comparing(ProductSearchIndex.SearchHit::getName,
+                        Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
+                break;
+            case "createdAt":
+                comparator = Comparator.comparing(ProductSearchIndex.SearchHit::getCreatedAt,
+                        Comparator.nullsLast(Comparator.naturalOrder()));
+                break;
+            default:
+                return null;
+        }
+        return order.isDescending() ? comparator.reversed() : comparator;
+    }
+
+    // Chuyển cả trang sản phẩm sang DTO, variants của mọi sản phẩm được lấy bằng một truy vấn
+    private Page<ProductDTO> convertToProductDTOs(Page<Product> productPage) {
+        return new PageImpl<>(convertToProductDTOs(productPage.getContent()),
+                productPage.getPageable(), productPage.getTotalElements());
+    }
+
+    private List<ProductDTO> convertToProductDTOs(List<Product> products) {
+        List<Long> productIds = products.stream()
+                .map(Product::getId)
+                .collect(Collectors.toList());
+        Map<Long, List<ProductVariantDTO>> variantsByProduct = productVariantService.getVariantsByProductIds(productIds);
+        Map<Long, Map<String, String>> imagesByProduct = getImagesByProduct(products);
+        return products.stream()
+                .map(product -> convertToProductDTO(product,
+                        variantsByProduct.getOrDefault(product.getId(), new ArrayList<>()),
+                        imagesByProduct.getOrDefault(product.getId(), new LinkedHashMap<>())))
+                .collect(Collectors.toList());
+    }
+
     private ProductDTO convertToProductDTO(Product product) {
+        return convertToProductDTO(product, productVariantService.getVariantsByProductId(product.getId()),
+                getImagesByProduct(List.of(product)).getOrDefault(product.getId(), new LinkedHashMap<>()));
+    }
+
+    // Bản resize của các sản phẩm trong một truy vấn; chỉ lấy bản sinh từ ảnh hiện tại của sản phẩm
+    private Map<Long, Map<String, String>> getImagesByProduct(List<Product> products) {
+        Map<Long, String> sourceUrls = new HashMap<>();
+        for (Product product : products) {
+            if (product.getImageUrl() != null) {
+                sourceUrls.put(product.getId(), product.getImageUrl());
+            }
+        }
+        Map<Long, Map<String, String>> result = new HashMap<>();
+        if (sourceUrls.isEmpty()) {
+            return result;
+        }
+        for (ProductImage image : productImageRepository.findByProductIdIn(sourceUrls.keySet())) {
+            Long productId = image.getProduct().getId();
+            if (image.getSourceUrl().equals(sourceUrls.get(productId))) {
+                result.computeIfAbsent(productId, id -> new LinkedHashMap<>()).put(image.getVariant(), image.getUrl());
+            }
+        }
+        return result;
+    }
+
+    private ProductDTO convertToProductDTO(Product product, List<ProductVariantDTO> variantDTOs,
+                                           Map<String, String> images) {
         ProductDTO productDTO = new ProductDTO();
         productDTO.setId(product.getId());
         productDTO.setName(product.getName());
@@ -286,9 +445,6 @@ public class ProductService {
         productDTO.setCategory(product.getCategory());
         productDTO.setGender(product.getGender());
 
-        // Lấy variants
-        List<ProductVariantDTO> variantDTOs = productVariantService.getVariantsByProductId(product.getId());
-
         // Lấy sizes từ variants
         List<ProductSizeDTO> sizeDTOs = variantDTOs.stream()
                 .map(ProductVariantDTO::getSize)
@@ -316,6 +472,7 @@ public class ProductService {
         productDTO.setSizes(sizeDTOs);
         productDTO.setColors(colorDTOs);
         productDTO.setVariants(variantDTOs);
+        productDTO.setImages(images);
         return productDTO;
     }
 
@@ -323,15 +480,15 @@ public class ProductService {
     public Page<ProductDTO> getProductsByCategoryPaging(String categoryName, Product.Gender gender, Pageable pageable) {
         try {
             logger.info("Fetching paged products by category: " + categoryName + " and gender: " + gender);
-            Page<Product> productPage;
-
-            if (gender != null) {
-                productPage = productRepository.findByCategoryNameAndGender(categoryName, gender, pageable);
-            } else {
-                productPage = productRepository.findByCategoryName(categoryName, pageable);
-            }
-
-            return productPage.map(this::convertToProductDTO);
+            return productCacheService.getListingPage(categoryName, gender, pageable, () -> {
+                Page<Product> productPage;
+                if (gender != null) {
+                    productPage = productRepository.findByCategoryNameAndGender(categoryName, gender, pageable);
+                } else {
+                    productPage = productRepository.findByCategoryName(categoryName, pageable);
+                }
+                return convertToProductDTOs(productPage);
+            });
         } catch (Exception e) {
             logger.severe("Error fetching paged products by category and gender: " + e.getMessage());
             throw new RuntimeException("Failed to fetch paged products by category and gender: " + e.getMessage());
@@ -342,19 +499,66 @@ public class ProductService {
     public Page<ProductDTO> getProductsByAllWithPaging(Product.Gender gender, Pageable pageable) {
         try {
             logger.info("Fetching paged products for ALL categories with gender: " + gender);
-            Page<Product> productPage;
-
-            if (gender != null) {
-                productPage = productRepository.findByGender(gender, pageable);
-            } else {
-                productPage = productRepository.findAll(pageable);
-            }
-
-            return productPage.map(this::convertToProductDTO);
+            return productCacheService.getListingPage("all", gender, pageable, () -> {
+                Page<Product> productPage;
+                if (gender != null) {
+                    productPage = productRepository.findByGender(gender, pageable);
+                } else {
+                    productPage = productRepository.findAll(pageable);
+                }
+                return convertToProductDTOs(productPage);
+            });
         } catch (Exception e) {
             logger.severe("Error fetching all paged products: " + e.getMessage());
             throw new RuntimeException("Failed to fetch paged products: " + e.getMessage());
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * Phân trang keyset cho danh sách sản phẩm (categoryName null hoặc "all" là toàn bộ catalog).
+     * Lấy size + 1 dòng để biết còn trang sau hay không, không chạy truy vấn COUNT.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDTO<ProductDTO> getProductsByCursor(String categoryName, Product.Gender gender, Sort sort,
+                                                         String after, int size) {
+        if (!ProductCursor.supports(sort)) {
+            throw new IllegalArgumentException("Kiểu sắp xếp không hỗ trợ phân trang cursor: " + sort);
+        }
+        if (size < 1) {
+            throw new IllegalArgumentException("Số sản phẩm mỗi trang phải lớn hơn 0");
+        }
+        int pageSize = Math.min(size, MAX_CURSOR_PAGE_SIZE);
+        Sort.Order order = sort.iterator().next();
+        ProductCursor cursor = null;
+        if (after != null && !after.isEmpty()) {
+            cursor = ProductCursor.decode(after);
+            if (!cursor.matches(order)) {
+                throw new IllegalArgumentException("Cursor không khớp với kiểu sắp xếp hiện tại");
+            }
+        }
+
+        ProductCursor position = cursor;
+        Specification<Product> spec = (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (categoryName != null && !"all".equalsIgnoreCase(categoryName)) {
+                predicates.add(cb.equal(cb.lower(root.get("category")), categoryName.toLowerCase()));
+            }
+            if (gender != null) {
+                predicates.add(cb.equal(root.get("gender"), gender));
+            }
+            if (position != null) {
+                predicates.add(position.toPredicate(root, cb));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+
+        // id là khóa phụ để thứ tự ổn định khi nhiều sản phẩm trùng giá / tên
+        Sort keysetSort = "id".equals(order.getProperty()) ? sort : sort.and(Sort.by(order.getDirection(), "id"));
+        List<Product> rows = productRepository.findBy(spec, q -> q.sortBy(keysetSort).limit(pageSize + 1).all());
+
+        boolean hasNext = rows.size() > pageSize;
+        List<Product> products = hasNext ? rows.subList(0, pageSize) : rows;
+        String nextCursor = hasNext ? ProductCursor.after(products.get(products.size() - 1), order).encode() : null;
+        return new CursorPageDTO<>(convertToProductDTOs(products), pageSize, hasNext, nextCursor);
+    }
+}
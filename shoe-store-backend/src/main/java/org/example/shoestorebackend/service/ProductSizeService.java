@@ -3,34 +3,124 @@ package org.example.shoestorebackend.service;
 import org.example.shoestorebackend.dto.ProductSizeDTO;
 import org.example.shoestorebackend.entity.ProductSize;
 import org.example.shoestorebackend.repository.ProductSizeRepository;
+import org.example.shoestorebackend.util.DictionaryCache;
+import org.example.shoestorebackend.util.TransactionUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
+import java.util.logging.Logger;
 
 @Service
 public class ProductSizeService {
+    private static final Logger logger = Logger.getLogger(ProductSizeService.class.getName());
+
     @Autowired
     private ProductSizeRepository productSizeRepository;
 
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Bảng size rất nhỏ và gần như không đổi nên được giữ toàn bộ trong bộ nhớ
+    private final DictionaryCache<ProductSize> dictionary =
+            new DictionaryCache<>(ProductSize::getId, ProductSize::getSize);
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadDictionary() {
+        dictionary.load(productSizeRepository.findAll());
+        logger.info("Loaded size dictionary: " + dictionary.size() + " entries");
+    }
+
     public ProductSize save(ProductSize productSize) {
-        return productSizeRepository.save(productSize);
+        ProductSize saved = productSizeRepository.save(productSize);
+        TransactionUtils.afterCommit(() -> dictionary.put(saved));
+        return saved;
     }
 
     public ProductSizeDTO save(ProductSizeDTO productSizeDTO) {
         ProductSize productSize = new ProductSize();
         productSize.setId(productSizeDTO.getId());
         productSize.setSize(productSizeDTO.getSize());
-        ProductSize savedSize = productSizeRepository.save(productSize);
+        ProductSize savedSize = save(productSize);
         return new ProductSizeDTO(savedSize.getId(), savedSize.getSize());
     }
 
     public List<ProductSizeDTO> getSizesByProductId(Long productId) {
         return List.of(); // Logic cũ không hợp lệ, bạn có thể lấy từ ProductVariant nếu cần
     }
+
+    // Tra theo id / giá trị trong bộ nhớ, không tạo mới; không có thì đọc database
+    // (bản ghi do instance khác hoặc SQL trực tiếp thêm vào sau khi nạp từ điển)
+    public ProductSize findById(Long id) {
+        ensureLoaded();
+        if (id == null) {
+            return null;
+        }
+        ProductSize cached = dictionary.getById(id);
+        return cached != null ? cached : remember(productSizeRepository.findById(id).orElse(null));
+    }
+
+    public ProductSize findByValue(String sizeValue) {
+        ensureLoaded();
+        if (sizeValue == null) {
+            return null;
+        }
+        ProductSize cached = dictionary.getByValue(sizeValue);
+        return cached != null ? cached : remember(productSizeRepository.findBySize(sizeValue.trim()).orElse(null));
+    }
+
+    // Chỉ đưa vào bộ nhớ sau khi transaction hiện tại commit, tránh giữ bản ghi chưa commit bị rollback
+    private ProductSize remember(ProductSize loaded) {
+        if (loaded != null) {
+            TransactionUtils.afterCommit(() -> dictionary.put(loaded));
+        }
+        return loaded;
+    }
+
     public ProductSize findOrCreate(String sizeValue) {
-        return productSizeRepository.findBySize(sizeValue.trim())
-                .orElseGet(() -> productSizeRepository.save(new ProductSize(null, sizeValue.trim())));
+        String value = sizeValue.trim();
+        ProductSize cached = findByValue(value);
+        if (cached != null) {
+            return cached;
+        }
+        // Khóa để các request đồng thời không cùng insert một giá trị
+        synchronized (dictionary) {
+            cached = dictionary.getByValue(value);
+            if (cached != null) {
+                return cached;
+            }
+            ProductSize created = insertOrLoad(value);
+            dictionary.put(created);
+            return created;
+        }
+    }
+
+    // Insert trong transaction riêng để giá trị mới được commit ngay trước khi đưa vào bộ nhớ;
+    // nếu instance khác vừa insert cùng giá trị (vi phạm unique) thì đọc lại bản ghi đó
+    private ProductSize insertOrLoad(String value) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            return transaction.execute(status -> productSizeRepository.saveAndFlush(new ProductSize(null, value)));
+        } catch (DataIntegrityViolationException e) {
+            return transaction.execute(status -> productSizeRepository.findBySize(value))
+                    .orElseThrow(() -> new RuntimeException("Không thể tạo size: " + value));
+        }
     }
 
-}
\ No newline at end of file
+    private void ensureLoaded() {
+        if (!dictionary.isLoaded()) {
+            synchronized (dictionary) {
+                if (!dictionary.isLoaded()) {
+                    loadDictionary();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package org.example.shoestorebackend.service;
+
+import org.example.shoestorebackend.dto.ProductSuggestionDTO;
+import org.example.shoestorebackend.entity.Product;
+import org.example.shoestorebackend.repository.OrderItemRepository;
+import org.example.shoestorebackend.repository.ProductRepository;
+import org.example.shoestorebackend.util.SuggestionTrie;
+import org.example.shoestorebackend.util.TextNormalizer;
+import org.example.shoestorebackend.util.TransactionUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Gợi ý tìm kiếm (autocomplete) theo tên, model và danh mục sản phẩm, trả lời hoàn toàn từ bộ nhớ.
+ * Độ phổ biến là tổng số lượng sản phẩm đã được đặt (không tính đơn đã hủy).
+ */
+@Service
+public class ProductSuggestionService {
+    private static final Logger logger = Logger.getLogger(ProductSuggestionService.class.getName());
+
+    // Khi chỉ có thay đổi về độ phổ biến, dựng lại cây tối đa một lần trong khoảng thời gian này
+    private static final long POPULARITY_REBUILD_INTERVAL_MS = 60_000;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Value("${suggest.max-results:10}")
+    private int maxResults;
+
+    private final Map<Long, CatalogEntry> catalog = new ConcurrentHashMap<>();
+    private final Map<Long, Long> popularity = new ConcurrentHashMap<>();
+    private volatile SuggestionTrie trie = new SuggestionTrie(1).freeze();
+    private volatile long lastRebuildAt = 0;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuildFromDatabase() {
+        try {
+            catalog.clear();
+            popularity.clear();
+            for (Product product : productRepository.findAll()) {
+                catalog.put(product.getId(), new CatalogEntry(product));
+            }
+            for (Object[] row : orderItemRepository.sumQuantityGroupByProduct()) {
+                popularity.put((Long) row[0], ((Number) row[1]).longValue());
+            }
+            rebuildTrie();
+            logger.info("Built suggestion trie for " + catalog.size() + " products");
+        } catch (Exception e) {
+            logger.severe("Error building suggestion trie: " + e.getMessage());
+        }
+    }
+
+    public List<ProductSuggestionDTO> suggest(String query, int limit) {
+        return trie.suggest(TextNormalizer.normalize(query), Math.min(limit, maxResults));
+    }
+
+    public void upsertAfterCommit(Product product) {
+        CatalogEntry entry = new CatalogEntry(product);
+        TransactionUtils.afterCommit(() -> {
+            catalog.put(entry.productId, entry);
+            rebuildTrie();
+        });
+    }
+
+    public void removeAfterCommit(Long productId) {
+        TransactionUtils.afterCommit(() -> {
+            catalog.remove(productId);
+            popularity.remove(productId);
+            rebuildTrie();
+        });
+    }
+
+    // quantities: productId -> số lượng vừa được đặt
+    public void recordSalesAfterCommit(Map<Long, Integer> quantities) {
+        TransactionUtils.afterCommit(() -> {
+            quantities.forEach((productId, quantity) -> popularity.merge(productId, (long) quantity, Long::sum));
+            if (System.currentTimeMillis() - lastRebuildAt >= POPULARITY_REBUILD_INTERVAL_MS) {
+                rebuildTrie();
+            }
+        });
+    }
+
+    private synchronized void rebuildTrie() {
+        SuggestionTrie newTrie = new SuggestionTrie(maxResults);
+        Map<String, String> categoryLabels = new HashMap<>();
+        Map<String, Long> categoryPopularity = new HashMap<>();
+
+        for (CatalogEntry entry : catalog.values()) {
+            long productPopularity = popularity.getOrDefault(entry.productId, 0L);
+
+            // Chèn tên theo từng vị trí đầu từ để "air" cũng gợi ý được "Nike Air Max"
+            String normalizedName = TextNormalizer.normalize(entry.name);
+            if (!normalizedName.isEmpty()) {
+                ProductSuggestionDTO nameSuggestion =
+                        new ProductSuggestionDTO(entry.name, "product", entry.productId, productPopularity);
+                newTrie.insert(normalizedName, nameSuggestion);
+                for (int i = normalizedName.indexOf(' '); i >= 0; i = normalizedName.indexOf(' ', i + 1)) {
+                    newTrie.insert(normalizedName.substring(i + 1), nameSuggestion);
+                }
+            }
+
+            String normalizedModel = TextNormalizer.normalize(entry.model);
+            if (!normalizedModel.isEmpty()) {
+                newTrie.insert(normalizedModel,
+                        new ProductSuggestionDTO(entry.model, "model", entry.productId, productPopularity));
+            }
+
+            String normalizedCategory = TextNormalizer.normalize(entry.category);
+            if (!normalizedCategory.isEmpty()) {
+                categoryLabels.putIfAbsent(normalizedCategory, entry.category);
+                categoryPopularity.merge(normalizedCategory, productPopularity, Long::sum);
+            }
+        }
+
+        categoryLabels.forEach((normalizedCategory, label) -> newTrie.insert(normalizedCategory,
+                new ProductSuggestionDTO(label, "category", null, categoryPopularity.get(normalizedCategory))));
+
+        trie = newTrie.freeze();
+        lastRebuildAt = System.currentTimeMillis();
+    }
+
+    private static class CatalogEntry {
+        private final Long productId;
+        private final String name;
+        private final String model;
+        private final String category;
+
+        private CatalogEntry(Product product) {
+            this.productId = product.getId();
+            this.name = product.getName();
+            this.model = product.getModel();
+            this.category = product.getCategory();
+        }
+    }
+}
@@ -4,13 +4,22 @@ import org.example.shoestorebackend.dto.ProductColorDTO;
 import org.example.shoestorebackend.dto.ProductSizeDTO;
 import org.example.shoestorebackend.dto.ProductVariantDTO;
 import org.example.shoestorebackend.entity.Product;
+import org.example.shoestorebackend.entity.ProductColor;
+import org.example.shoestorebackend.entity.ProductSize;
 import org.example.shoestorebackend.entity.ProductVariant;
 import org.example.shoestorebackend.repository.ProductVariantRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -18,25 +27,104 @@ public class ProductVariantService {
     @Autowired
     private ProductVariantRepository productVariantRepository;
 
+    @Autowired
+    private ProductSizeService productSizeService;
+
+    @Autowired
+    private ProductColorService productColorService;
+
+    @Autowired
+    private VariantAvailabilityIndex variantAvailabilityIndex;
+
     public List<ProductVariantDTO> getVariantsByProductId(Long productId) {
+        if (variantAvailabilityIndex.canServe()) {
+            return variantAvailabilityIndex.getVariants(productId);
+        }
         List<ProductVariant> variants = productVariantRepository.findByProductId(productId);
-        return variants.stream().map(variant -> {
-            ProductVariantDTO variantDTO = new ProductVariantDTO();
-            variantDTO.setId(variant.getId());
-            variantDTO.setQuantity(variant.getQuantity());
+        return variants.stream().map(this::convertToVariantDTO).collect(Collectors.toList());
+    }
+
+    // Lấy variants của nhiều sản phẩm trong một truy vấn, nhóm theo productId
+    public Map<Long, List<ProductVariantDTO>> getVariantsByProductIds(Collection<Long> productIds) {
+        if (productIds == null || productIds.isEmpty()) {
+            return new HashMap<>();
+        }
+        if (variantAvailabilityIndex.canServe()) {
+            Map<Long, List<ProductVariantDTO>> variantsByProduct = new HashMap<>();
+            for (Long productId : productIds) {
+                List<ProductVariantDTO> variants = variantAvailabilityIndex.getVariants(productId);
+                if (!variants.isEmpty()) {
+                    variantsByProduct.put(productId, variants);
+                }
+            }
+            return variantsByProduct;
+        }
+        return productVariantRepository.findByProductIdIn(productIds).stream()
+                .collect(Collectors.groupingBy(
+                        variant -> variant.getProduct().getId(),
+                        Collectors.mapping(this::convertToVariantDTO, Collectors.toList())));
+    }
+
+    /**
+     * Tìm variant theo (productId, size, color): size/color được đổi sang id từ từ điển trong bộ nhớ
+     * nên truy vấn chỉ chạm bảng product_variants, không cần join product_sizes/product_colors.
+     */
+    public Optional<ProductVariant> findVariant(Long productId, String size, String color) {
+        if (productId == null || size == null || color == null) {
+            return Optional.empty();
+        }
+        ProductSize sizeEntity = productSizeService.findByValue(size);
+        ProductColor colorEntity = productColorService.findByValue(color);
+        if (sizeEntity == null || colorEntity == null) {
+            return Optional.empty();
+        }
+        return productVariantRepository.findByProductIdAndSizeIdAndColorId(productId, sizeEntity.getId(), colorEntity.getId())
+                .map(variant -> {
+                    // Gắn size/color đã có sẵn để tránh lazy load ngoài transaction
+                    variant.setSize(sizeEntity);
+                    variant.setColor(colorEntity);
+                    return variant;
+                });
+    }
+
+    /**
+     * Tìm variant cho nhiều bộ (productId, size, color) bằng một truy vấn fetch join theo productId,
+     * ghép size/color trong bộ nhớ (không phân biệt hoa thường như collation của MySQL).
+     * Bộ nào không có variant tương ứng thì không có trong kết quả.
+     */
+    public Map<VariantKey, ProductVariant> resolveVariants(Collection<VariantKey> keys) {
+        Map<VariantKey, ProductVariant> resolved = new HashMap<>();
+        if (keys == null || keys.isEmpty()) {
+            return resolved;
+        }
+        Set<Long> productIds = keys.stream().map(VariantKey::getProductId).collect(Collectors.toSet());
+        Set<VariantKey> wanted = new HashSet<>(keys);
+        for (ProductVariant variant : productVariantRepository.findByProductIdIn(productIds)) {
+            VariantKey key = new VariantKey(variant.getProduct().getId(),
+                    variant.getSize().getSize(), variant.getColor().getColor());
+            if (wanted.contains(key)) {
+                resolved.put(key, variant);
+            }
+        }
+        return resolved;
+    }
 
-            ProductSizeDTO sizeDTO = new ProductSizeDTO();
-            sizeDTO.setId(variant.getSize().getId());
-            sizeDTO.setSize(variant.getSize().getSize());
-            variantDTO.setSize(sizeDTO);
+    private ProductVariantDTO convertToVariantDTO(ProductVariant variant) {
+        ProductVariantDTO variantDTO = new ProductVariantDTO();
+        variantDTO.setId(variant.getId());
+        variantDTO.setQuantity(variant.getQuantity());
 
-            ProductColorDTO colorDTO = new ProductColorDTO();
-            colorDTO.setId(variant.getColor().getId());
-            colorDTO.setColor(variant.getColor().getColor());
-            variantDTO.setColor(colorDTO);
+        ProductSizeDTO sizeDTO = new ProductSizeDTO();
+        sizeDTO.setId(variant.getSize().getId());
+        sizeDTO.setSize(variant.getSize().getSize());
+        variantDTO.setSize(sizeDTO);
 
-            return variantDTO;
-        }).collect(Collectors.toList());
+        ProductColorDTO colorDTO = new ProductColorDTO();
+        colorDTO.setId(variant.getColor().getId());
+        colorDTO.setColor(variant.getColor().getColor());
+        variantDTO.setColor(colorDTO);
+
+        return variantDTO;
     }
 
     public ProductVariant save(ProductVariant variant) {
@@ -45,4 +133,35 @@ public class ProductVariantService {
     public List<ProductVariant> findByProduct(Product product) {
         return productVariantRepository.findByProduct(product);
     }
-}
\ No newline at end of file
+
+    // Khóa (productId, size, color) của một variant, size/color được so sánh không phân biệt hoa thường
+    public static class VariantKey {
+        private final Long productId;
+        private final String size;
+        private final String color;
+
+        public VariantKey(Long productId, String size, String color) {
+            this.productId = productId;
+            this.size = size != null ? size.trim().toLowerCase(Locale.ROOT) : null;
+            this.color = color != null ? color.trim().toLowerCase(Locale.ROOT) : null;
+        }
+
+        public Long getProductId() { return productId; }
+        public String getSize() { return size; }
+        public String getColor() { return color; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof VariantKey)) return false;
+            VariantKey other = (VariantKey) o;
+            return Objects.equals(productId, other.productId) && Objects.equals(size, other.size)
+                    && Objects.equals(color, other.color);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(productId, size, color);
+        }
+    }
+}
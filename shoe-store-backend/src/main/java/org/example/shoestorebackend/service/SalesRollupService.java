@@ -0,0 +1,101 @@
+package org.example.shoestorebackend.service;
+
+import org.example.shoestorebackend.entity.DailySalesBreakdown;
+import org.example.shoestorebackend.entity.DailySalesBreakdownId;
+import org.example.shoestorebackend.entity.Order;
+import org.example.shoestorebackend.entity.OrderItem;
+import org.example.shoestorebackend.repository.DailySalesRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Duy trì bảng tổng hợp doanh thu theo ngày (daily_sales, daily_sales_breakdown).
+ * Đơn được tính vào ngày tạo đơn, giống cách dashboard lọc theo createdAt.
+ */
+@Service
+public class SalesRollupService {
+    private static final Logger logger = Logger.getLogger(SalesRollupService.class.getName());
+
+    public static final String DIMENSION_CATEGORY = "category";
+    public static final String DIMENSION_GENDER = "gender";
+
+    @Autowired
+    private DailySalesRepository dailySalesRepository;
+
+    // Gọi trong cùng transaction đổi trạng thái đơn để bảng tổng hợp commit/rollback cùng đơn hàng
+    public void onStatusChange(Order order, Order.Status oldStatus, Order.Status newStatus) {
+        int deliveredDelta = (newStatus == Order.Status.DELIVERED ? 1 : 0) - (oldStatus == Order.Status.DELIVERED ? 1 : 0);
+        int cancelledDelta = (newStatus == Order.Status.CANCELLED ? 1 : 0) - (oldStatus == Order.Status.CANCELLED ? 1 : 0);
+        if (deliveredDelta == 0 && cancelledDelta == 0) {
+            return;
+        }
+
+        LocalDate salesDate = order.getCreatedAt().toLocalDate();
+        double discount = order.getDiscountAmount() != null ? order.getDiscountAmount() : 0;
+        long units = order.getOrderItems().stream().mapToLong(OrderItem::getQuantity).sum();
+
+        dailySalesRepository.addDailyTotals(salesDate,
+                deliveredDelta * (order.getTotalAmount() - discount),
+                deliveredDelta,
+                deliveredDelta * units,
+                deliveredDelta * discount,
+                cancelledDelta);
+
+        if (deliveredDelta != 0) {
+            dailySalesRepository.addBreakdowns(buildBreakdowns(order, salesDate, deliveredDelta).values());
+        }
+    }
+
+    private Map<DailySalesBreakdownId, DailySalesBreakdown> buildBreakdowns(Order order, LocalDate salesDate, int sign) {
+        Map<DailySalesBreakdownId, DailySalesBreakdown> deltas = new LinkedHashMap<>();
+        for (OrderItem item : order.getOrderItems()) {
+            double itemRevenue = item.getPriceAtTime() * item.getQuantity();
+            addBreakdown(deltas, new DailySalesBreakdownId(salesDate, DIMENSION_CATEGORY, item.getProduct().getCategory()),
+                    itemRevenue, item.getQuantity(), sign);
+            addBreakdown(deltas, new DailySalesBreakdownId(salesDate, DIMENSION_GENDER, item.getProduct().getGender().name()),
+                    itemRevenue, item.getQuantity(), sign);
+        }
+        return deltas;
+    }
+
+    private void addBreakdown(Map<DailySalesBreakdownId, DailySalesBreakdown> deltas, DailySalesBreakdownId id,
+                              double revenue, int quantity, int sign) {
+        DailySalesBreakdown delta = deltas.computeIfAbsent(id, key -> {
+            DailySalesBreakdown created = new DailySalesBreakdown(key);
+            // Mỗi đơn chỉ đếm một lần cho mỗi danh mục / giới tính
+            created.setOrderCount((long) sign);
+            return created;
+        });
+        delta.setRevenue(delta.getRevenue() + sign * revenue);
+        delta.setUnits(delta.getUnits() + (long) sign * quantity);
+    }
+
+    @Transactional
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        dailySalesRepository.rebuildFromOrders();
+        logger.info("Rebuilt daily sales rollup: " + dailySalesRepository.count() + " days in "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    // Lần đầu triển khai bảng tổng hợp còn trống: tính lại từ lịch sử đơn hàng
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void rebuildIfEmpty() {
+        try {
+            if (dailySalesRepository.count() == 0) {
+                rebuild();
+            }
+        } catch (Exception e) {
+            logger.severe("Error building daily sales rollup: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package org.example.shoestorebackend.service;
+
+import org.example.shoestorebackend.repository.UserRepository;
+import org.example.shoestorebackend.util.BoundedCache;
+import org.example.shoestorebackend.util.TransactionUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+/**
+ * Cache ngắn hạn trạng thái bị chặn của user cho xác thực JWT không truy vấn DB.
+ * TTL ngắn giới hạn thời gian một thay đổi từ nơi khác (instance khác, sửa tay DB) chưa có hiệu lực;
+ * block/unblock qua AuthService thì xóa cache ngay sau khi commit.
+ */
+@Service
+public class UserStatusService {
+    private final UserRepository userRepository;
+    private final BoundedCache<Long, Boolean> blockedUsers;
+
+    public UserStatusService(UserRepository userRepository,
+                             @Value("${auth.blocked-cache.max-size:10000}") int maxSize,
+                             @Value("${auth.blocked-cache.ttl-seconds:30}") long ttlSeconds) {
+        this.userRepository = userRepository;
+        this.blockedUsers = new BoundedCache<>(maxSize, Duration.ofSeconds(ttlSeconds));
+    }
+
+    // User không còn tồn tại được coi như bị chặn
+    public boolean isBlocked(Long userId) {
+        return blockedUsers.getOrLoad(userId, id -> userRepository.findBlockedById(id).orElse(Boolean.TRUE));
+    }
+
+    public void invalidateAfterCommit(Long userId) {
+        TransactionUtils.afterCommit(() -> blockedUsers.invalidate(userId));
+    }
+}
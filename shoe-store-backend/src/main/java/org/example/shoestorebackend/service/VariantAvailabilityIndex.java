@@ -0,0 +1,291 @@
+package org.example.shoestorebackend.service;
+
+import jakarta.annotation.PreDestroy;
+import org.example.shoestorebackend.dto.ProductColorDTO;
+import org.example.shoestorebackend.dto.ProductSizeDTO;
+import org.example.shoestorebackend.dto.ProductVariantDTO;
+import org.example.shoestorebackend.entity.ProductColor;
+import org.example.shoestorebackend.entity.ProductSize;
+import org.example.shoestorebackend.util.TransactionUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+/**
+ * Index tồn kho theo sản phẩm, nạp thẳng từ bảng product_variants bằng JDBC (không qua Hibernate).
+ * Mỗi sản phẩm giữ các mảng nguyên thủy song song (variantId, sizeId, colorId, quantity),
+ * tên size/màu lấy từ từ điển trong bộ nhớ nên câu hỏi "còn size/màu nào, bao nhiêu" không cần truy vấn.
+ */
+@Service
+public class VariantAvailabilityIndex {
+    private static final Logger logger = Logger.getLogger(VariantAvailabilityIndex.class.getName());
+
+    // Chờ trước khi nạp lại toàn bộ sau lỗi, tránh dồn truy vấn khi database đang gặp sự cố
+    private static final long RETRY_DELAY_SECONDS = 30;
+
+    private static final String SELECT_VARIANTS =
+            "SELECT id, product_id, size_id, color_id, quantity FROM product_variants";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ProductSizeService productSizeService;
+
+    @Autowired
+    private ProductColorService productColorService;
+
+    // Mỗi ProductStock là bất biến, cập nhật bằng cách thay cả entry nên đọc không cần khóa
+    private final Map<Long, ProductStock> stockByProduct = new ConcurrentHashMap<>();
+    private volatile boolean ready = false;
+    // Sản phẩm thay đổi trong lúc đang nạp toàn bộ; null khi không có lần nạp nào đang chạy
+    private Set<Long> changedDuringRebuild;
+    private final Object rebuildLock = new Object();
+    private final AtomicBoolean retryScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService retryExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "variant-index-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PreDestroy
+    public void shutdown() {
+        retryExecutor.shutdownNow();
+    }
+
+    /**
+     * Nạp toàn bộ ngoài khóa để không chặn các lần refresh; sản phẩm được refresh trong lúc nạp
+     * được đọc lại sau khi thay snapshot, nên snapshot cũ hơn không ghi đè thay đổi đã commit.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            synchronized (this) {
+                changedDuringRebuild = new HashSet<>();
+            }
+            Set<Long> changed;
+            try {
+                long start = System.currentTimeMillis();
+                Map<Long, ProductStock> loaded = load(SELECT_VARIANTS + " ORDER BY product_id, id", new MapSqlParameterSource());
+                synchronized (this) {
+                    stockByProduct.clear();
+                    stockByProduct.putAll(loaded);
+                    changed = changedDuringRebuild;
+                    changedDuringRebuild = null;
+                    ready = true;
+                }
+                logger.info("Built variant availability index: " + loaded.size() + " products in "
+                        + (System.currentTimeMillis() - start) + " ms");
+            } catch (Exception e) {
+                synchronized (this) {
+                    changedDuringRebuild = null;
+                    ready = false;
+                }
+                logger.severe("Error building variant availability index, falling back to database: " + e.getMessage());
+                scheduleRebuild();
+                return;
+            }
+            refresh(new ArrayList<>(changed));
+        }
+    }
+
+    // Nạp lại toàn bộ ở background sau lỗi; trong lúc chờ các truy vấn đọc thẳng database
+    private void scheduleRebuild() {
+        if (retryScheduled.compareAndSet(false, true)) {
+            retryExecutor.schedule(() -> {
+                retryScheduled.set(false);
+                rebuild();
+            }, RETRY_DELAY_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Trong transaction ghi, index chưa thấy thay đổi chưa commit nên phải đọc database
+    public boolean canServe() {
+        return ready && !(TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+    }
+
+    // Nạp lại tồn kho của các sản phẩm sau khi transaction ghi commit
+    public void refreshAfterCommit(Collection<Long> productIds) {
+        List<Long> ids = new ArrayList<>(productIds);
+        TransactionUtils.afterCommit(() -> refresh(ids));
+    }
+
+    public void removeAfterCommit(Long productId) {
+        TransactionUtils.afterCommit(() -> remove(productId));
+    }
+
+    private synchronized void remove(Long productId) {
+        stockByProduct.remove(productId);
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.add(productId);
+        }
+    }
+
+    // Đọc và ghi trong cùng khối synchronized để lần refresh chạy sau luôn ghi đè bằng dữ liệu mới hơn
+    private synchronized void refresh(List<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.addAll(productIds);
+        }
+        if (!ready) {
+            return;
+        }
+        try {
+            Map<Long, ProductStock> loaded = load(SELECT_VARIANTS + " WHERE product_id IN (:productIds) ORDER BY product_id, id",
+                    new MapSqlParameterSource("productIds", productIds));
+            for (Long productId : productIds) {
+                ProductStock stock = loaded.get(productId);
+                if (stock != null) {
+                    stockByProduct.put(productId, stock);
+                } else {
+                    stockByProduct.remove(productId);
+                }
+            }
+        } catch (Exception e) {
+            // Không để index lệch với database: tạm ngừng phục vụ cho tới khi nạp lại toàn bộ
+            logger.severe("Error refreshing variant availability index: " + e.getMessage());
+            ready = false;
+            scheduleRebuild();
+        }
+    }
+
+    private Map<Long, ProductStock> load(String sql, MapSqlParameterSource params) {
+        Map<Long, ProductStock.Builder> builders = new HashMap<>();
+        new NamedParameterJdbcTemplate(jdbcTemplate).query(sql, params, (RowCallbackHandler) rs -> {
+            long productId = rs.getLong("product_id");
+            builders.computeIfAbsent(productId, id -> new ProductStock.Builder()).add(rs);
+        });
+        Map<Long, ProductStock> result = new HashMap<>(builders.size() * 2);
+        builders.forEach((productId, builder) -> result.put(productId, builder.build()));
+        return result;
+    }
+
+    // Các size của sản phẩm theo thứ tự variant, không trùng lặp
+    public List<String> getSizes(Long productId) {
+        ProductStock stock = stockByProduct.get(productId);
+        List<String> sizes = new ArrayList<>();
+        if (stock == null) {
+            return sizes;
+        }
+        for (long sizeId : distinct(stock.sizeIds)) {
+            ProductSize size = productSizeService.findById(sizeId);
+            if (size != null) {
+                sizes.add(size.getSize());
+            }
+        }
+        return sizes;
+    }
+
+    public List<String> getColors(Long productId) {
+        ProductStock stock = stockByProduct.get(productId);
+        List<String> colors = new ArrayList<>();
+        if (stock == null) {
+            return colors;
+        }
+        for (long colorId : distinct(stock.colorIds)) {
+            ProductColor color = productColorService.findById(colorId);
+            if (color != null) {
+                colors.add(color.getColor());
+            }
+        }
+        return colors;
+    }
+
+    public List<ProductVariantDTO> getVariants(Long productId) {
+        ProductStock stock = stockByProduct.get(productId);
+        List<ProductVariantDTO> variants = new ArrayList<>();
+        if (stock == null) {
+            return variants;
+        }
+        for (int i = 0; i < stock.variantIds.length; i++) {
+            ProductSize size = productSizeService.findById(stock.sizeIds[i]);
+            ProductColor color = productColorService.findById(stock.colorIds[i]);
+            if (size == null || color == null) {
+                continue;
+            }
+            ProductVariantDTO variantDTO = new ProductVariantDTO();
+            variantDTO.setId(stock.variantIds[i]);
+            variantDTO.setQuantity(stock.quantities[i]);
+            variantDTO.setSize(new ProductSizeDTO(size.getId(), size.getSize()));
+            variantDTO.setColor(new ProductColorDTO(color.getId(), color.getColor()));
+            variants.add(variantDTO);
+        }
+        return variants;
+    }
+
+    private static long[] distinct(long[] values) {
+        return Arrays.stream(values).distinct().toArray();
+    }
+
+    private static final class ProductStock {
+        private final long[] variantIds;
+        private final long[] sizeIds;
+        private final long[] colorIds;
+        private final int[] quantities;
+
+        private ProductStock(long[] variantIds, long[] sizeIds, long[] colorIds, int[] quantities) {
+            this.variantIds = variantIds;
+            this.sizeIds = sizeIds;
+            this.colorIds = colorIds;
+            this.quantities = quantities;
+        }
+
+        private static final class Builder {
+            private long[] variantIds = new long[4];
+            private long[] sizeIds = new long[4];
+            private long[] colorIds = new long[4];
+            private int[] quantities = new int[4];
+            private int count = 0;
+
+            private void add(ResultSet rs) throws SQLException {
+                if (count == variantIds.length) {
+                    int capacity = count * 2;
+                    variantIds = Arrays.copyOf(variantIds, capacity);
+                    sizeIds = Arrays.copyOf(sizeIds, capacity);
+                    colorIds = Arrays.copyOf(colorIds, capacity);
+                    quantities = Arrays.copyOf(quantities, capacity);
+                }
+                variantIds[count] = rs.getLong("id");
+                sizeIds[count] = rs.getLong("size_id");
+                colorIds[count] = rs.getLong("color_id");
+                quantities[count] = rs.getInt("quantity");
+                count++;
+            }
+
+            private ProductStock build() {
+                return new ProductStock(Arrays.copyOf(variantIds, count), Arrays.copyOf(sizeIds, count),
+                        Arrays.copyOf(colorIds, count), Arrays.copyOf(quantities, count));
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.example.shoestorebackend.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Đọc/ghi bản ghi CSV theo RFC 4180: trường chứa dấu phẩy, nháy kép hoặc xuống dòng được bọc trong nháy kép,
+ * nháy kép bên trong được nhân đôi. Bản ghi có trường xuống dòng trải trên nhiều dòng vật lý.
+ */
+public final class CsvUtils {
+
+    private CsvUtils() {
+    }
+
+    /**
+     * Đọc một bản ghi: đọc thêm dòng chừng nào còn đang ở trong nháy kép (số dấu nháy tới giờ là lẻ).
+     * Xuống dòng trong trường được trả về dạng \n. Trả về null khi hết dữ liệu.
+     */
+    public static String readRecord(BufferedReader reader) throws IOException {
+        String line = reader.readLine();
+        if (line == null) {
+            return null;
+        }
+        StringBuilder record = new StringBuilder(line);
+        boolean quoted = hasOddQuotes(line);
+        while (quoted) {
+            String next = reader.readLine();
+            if (next == null) {
+                // Để parseLine báo lỗi thiếu nháy kép đóng
+                break;
+            }
+            record.append('\n').append(next);
+            quoted ^= hasOddQuotes(next);
+        }
+        return record.toString();
+    }
+
+    private static boolean hasOddQuotes(String line) {
+        boolean odd = false;
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) == '"') {
+                odd = !odd;
+            }
+        }
+        return odd;
+    }
+
+    public static List<String> parseLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        current.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Thiếu dấu nháy kép đóng");
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+
+    public static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    public static String formatLine(Object... values) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            Object value = values[i];
+            // Số thực ghi dạng thường (1250000.0) thay vì dạng khoa học (1.25E6)
+            if (value instanceof Double || value instanceof Float) {
+                value = BigDecimal.valueOf(((Number) value).doubleValue()).toPlainString();
+            }
+            line.append(escape(value != null ? value.toString() : null));
+        }
+        return line.append('\n').toString();
+    }
+}
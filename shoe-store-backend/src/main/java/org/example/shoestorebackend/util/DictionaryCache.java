@@ -0,0 +1,56 @@
+package org.example.shoestorebackend.util;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Bảng tra hai chiều id <-> giá trị cho các bảng từ điển nhỏ (size, màu).
+ * Giá trị được so khớp sau khi trim và chuyển chữ thường, giống collation không phân biệt hoa thường của MySQL.
+ */
+public class DictionaryCache<E> {
+    private final Function<E, Long> idGetter;
+    private final Function<E, String> valueGetter;
+    private final Map<Long, E> byId = new ConcurrentHashMap<>();
+    private final Map<String, E> byValue = new ConcurrentHashMap<>();
+    private volatile boolean loaded = false;
+
+    public DictionaryCache(Function<E, Long> idGetter, Function<E, String> valueGetter) {
+        this.idGetter = idGetter;
+        this.valueGetter = valueGetter;
+    }
+
+    public synchronized void load(Collection<E> entries) {
+        byId.clear();
+        byValue.clear();
+        entries.forEach(this::put);
+        loaded = true;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public void put(E entry) {
+        byId.put(idGetter.apply(entry), entry);
+        byValue.put(normalize(valueGetter.apply(entry)), entry);
+    }
+
+    public E getById(Long id) {
+        return id != null ? byId.get(id) : null;
+    }
+
+    public E getByValue(String value) {
+        return value != null ? byValue.get(normalize(value)) : null;
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    public static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+}
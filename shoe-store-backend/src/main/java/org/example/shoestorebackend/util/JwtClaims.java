@@ -0,0 +1,30 @@
+package org.example.shoestorebackend.util;
+
+import java.util.Date;
+
+// Claims của một JWT đã được xác thực chữ ký, dùng lại trong cùng request thay vì parse lại token
+public class JwtClaims {
+    // Tên attribute của request mà JwtAuthenticationFilter gắn claims vào
+    public static final String REQUEST_ATTRIBUTE = JwtClaims.class.getName();
+
+    private final String email;
+    private final Long userId;
+    private final String role;
+    private final Date expiration;
+
+    public JwtClaims(String email, Long userId, String role, Date expiration) {
+        this.email = email;
+        this.userId = userId;
+        this.role = role;
+        this.expiration = expiration;
+    }
+
+    public String getEmail() { return email; }
+    public Long getUserId() { return userId; }
+    public String getRole() { return role; }
+    public Date getExpiration() { return expiration; }
+
+    public boolean isExpired() {
+        return expiration != null && expiration.getTime() <= System.currentTimeMillis();
+    }
+}
@@ -1,11 +1,18 @@
 package org.example.shoestorebackend.util;
 
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.Date;
+import java.util.HexFormat;
 
 @Component
 public class JwtUtil {
@@ -15,6 +22,13 @@ public class JwtUtil {
 
     private final long EXPIRATION_TIME = 1000 * 60 * 60;
 
+    // Token đã xác thực, key là SHA-256 của token; mỗi lần đọc vẫn kiểm tra hạn của token
+    private final BoundedCache<String, JwtClaims> verifiedTokens;
+
+    public JwtUtil(@Value("${jwt.verified-cache.max-size:10000}") int verifiedCacheSize) {
+        this.verifiedTokens = new BoundedCache<>(verifiedCacheSize, Duration.ofMillis(EXPIRATION_TIME));
+    }
+
     public String generateToken(String email, Long userId, String role) {
         return Jwts.builder()
                 .setSubject(email)
@@ -26,36 +40,70 @@ public class JwtUtil {
                 .compact();
     }
 
+    /**
+     * Xác thực chữ ký và hạn của token một lần, trả về claims đã parse; null nếu token không hợp lệ.
+     * Token đã xác thực được cache đến khi hết hạn nên các request sau không phải kiểm tra HMAC lại.
+     */
+    public JwtClaims parseToken(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        String key = sha256(token);
+        JwtClaims cached = verifiedTokens.get(key);
+        if (cached != null) {
+            if (!cached.isExpired()) {
+                return cached;
+            }
+            verifiedTokens.invalidate(key);
+            return null;
+        }
+
+        try {
+            Claims body = Jwts.parser()
+                    .setSigningKey(SECRET_KEY)
+                    .parseClaimsJws(token)
+                    .getBody();
+            JwtClaims claims = new JwtClaims(body.getSubject(), body.get("userId", Long.class),
+                    body.get("role", String.class), body.getExpiration());
+            verifiedTokens.put(key, claims);
+            return claims;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    // Claims mà JwtAuthenticationFilter đã gắn vào request, nếu chưa có thì parse token
+    public JwtClaims getClaims(HttpServletRequest request, String token) {
+        Object attribute = request != null ? request.getAttribute(JwtClaims.REQUEST_ATTRIBUTE) : null;
+        JwtClaims claims = attribute instanceof JwtClaims ? (JwtClaims) attribute : parseToken(token);
+        if (claims == null) {
+            throw new RuntimeException("Token không hợp lệ hoặc đã hết hạn");
+        }
+        return claims;
+    }
+
     public String extractEmail(String token) {
-        return Jwts.parser()
-                .setSigningKey(SECRET_KEY)
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+        return getClaims(null, token).getEmail();
     }
 
     public Long extractUserId(String token) {
-        return Jwts.parser()
-                .setSigningKey(SECRET_KEY)
-                .parseClaimsJws(token)
-                .getBody()
-                .get("userId", Long.class);
+        return getClaims(null, token).getUserId();
     }
 
     public String extractRole(String token) {
-        return Jwts.parser()
-                .setSigningKey(SECRET_KEY)
-                .parseClaimsJws(token)
-                .getBody()
-                .get("role", String.class);
+        return getClaims(null, token).getRole();
     }
 
     public boolean validateToken(String token) {
+        return parseToken(token) != null;
+    }
+
+    private static String sha256(String token) {
         try {
-            Jwts.parser().setSigningKey(SECRET_KEY).parseClaimsJws(token);
-            return true;
-        } catch (Exception e) {
-            return false;
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,131 @@
+package org.example.shoestorebackend.util;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.example.shoestorebackend.entity.Product;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Set;
+
+/**
+ * Cursor cho phân trang keyset của danh sách sản phẩm: lưu giá trị cột sắp xếp và id của
+ * sản phẩm cuối trang trước, trang sau lọc bằng WHERE thay vì OFFSET.
+ * Chuỗi cursor gửi cho client là Base64 (URL-safe), client chỉ cần gửi lại nguyên vẹn.
+ */
+public class ProductCursor {
+    public static final Set<String> SORTABLE_PROPERTIES = Set.of("id", "price", "name", "createdAt");
+
+    private final String property;
+    private final Sort.Direction direction;
+    private final Long lastId;
+    private final String value;
+
+    private ProductCursor(String property, Sort.Direction direction, Long lastId, String value) {
+        this.property = property;
+        this.direction = direction;
+        this.lastId = lastId;
+        this.value = value;
+    }
+
+    public static boolean supports(Sort sort) {
+        Sort.Order order = sort.stream().findFirst().orElse(null);
+        return order != null && SORTABLE_PROPERTIES.contains(order.getProperty()) && sort.stream().count() == 1;
+    }
+
+    // Tạo cursor trỏ sau sản phẩm cuối cùng của trang hiện tại
+    public static ProductCursor after(Product last, Sort.Order order) {
+        Object sortValue;
+        switch (order.getProperty()) {
+            case "price":
+                sortValue = last.getPrice();
+                break;
+            case "name":
+                sortValue = last.getName();
+                break;
+            case "createdAt":
+                sortValue = last.getCreatedAt();
+                break;
+            default:
+                sortValue = last.getId();
+        }
+        return new ProductCursor(order.getProperty(), order.getDirection(), last.getId(),
+                sortValue != null ? sortValue.toString() : null);
+    }
+
+    public String encode() {
+        String raw = property + "\n" + direction.name() + "\n" + lastId + "\n" + (value != null ? "=" + value : "-");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ProductCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\n", 4);
+            if (parts.length != 4 || !SORTABLE_PROPERTIES.contains(parts[0])) {
+                throw new IllegalArgumentException("Cursor không hợp lệ");
+            }
+            String value = parts[3].startsWith("=") ? parts[3].substring(1) : null;
+            ProductCursor cursor = new ProductCursor(parts[0], Sort.Direction.valueOf(parts[1]), Long.valueOf(parts[2]), value);
+            // Kiểm tra giá trị parse được theo kiểu của cột
+            cursor.typedValue();
+            return cursor;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Cursor không hợp lệ");
+        }
+    }
+
+    // Cursor chỉ dùng được với đúng kiểu sắp xếp đã tạo ra nó
+    public boolean matches(Sort.Order order) {
+        return property.equals(order.getProperty()) && direction == order.getDirection();
+    }
+
+    /**
+     * Điều kiện "đứng sau cursor" theo (cột sắp xếp, id). MySQL xếp NULL trước khi tăng dần
+     * và sau cùng khi giảm dần, điều kiện được viết khớp với thứ tự đó.
+     */
+    public Predicate toPredicate(Root<Product> root, CriteriaBuilder cb) {
+        Path<Long> id = root.get("id");
+        boolean ascending = direction.isAscending();
+        Predicate idAfter = ascending ? cb.greaterThan(id, lastId) : cb.lessThan(id, lastId);
+        if ("id".equals(property)) {
+            return idAfter;
+        }
+
+        Path<Comparable<Object>> field = root.get(property);
+        if (value == null) {
+            return ascending
+                    ? cb.or(cb.and(cb.isNull(field), idAfter), cb.isNotNull(field))
+                    : cb.and(cb.isNull(field), idAfter);
+        }
+
+        Comparable<Object> typed = typedValue();
+        Predicate valueAfter = ascending ? cb.greaterThan(field, typed) : cb.lessThan(field, typed);
+        Predicate sameValue = cb.and(cb.equal(field, typed), idAfter);
+        return ascending
+                ? cb.or(valueAfter, sameValue)
+                : cb.or(valueAfter, sameValue, cb.isNull(field));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Comparable<Object> typedValue() {
+        if (value == null) {
+            return null;
+        }
+        switch (property) {
+            case "price":
+                return (Comparable<Object>) (Comparable<?>) Double.valueOf(value);
+            case "createdAt":
+                return (Comparable<Object>) (Comparable<?>) LocalDateTime.parse(value);
+            case "id":
+                return (Comparable<Object>) (Comparable<?>) Long.valueOf(value);
+            default:
+                return (Comparable<Object>) (Comparable<?>) value;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package org.example.shoestorebackend.util;
+
+import org.example.shoestorebackend.dto.ProductSuggestionDTO;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cây tiền tố cho gợi ý tìm kiếm. Mỗi node giữ sẵn top-N gợi ý phổ biến nhất của cả nhánh con,
+ * nên một truy vấn chỉ cần đi theo các ký tự của tiền tố rồi trả về danh sách có sẵn.
+ * Dựng xong thì gọi freeze() và không sửa nữa; muốn cập nhật thì dựng cây mới.
+ */
+public class SuggestionTrie {
+    private static final Comparator<ProductSuggestionDTO> BY_POPULARITY =
+            Comparator.comparingLong(ProductSuggestionDTO::getPopularity).reversed()
+                    .thenComparingInt(suggestion -> suggestion.getText().length())
+                    .thenComparing(ProductSuggestionDTO::getText);
+
+    private final int maxSuggestionsPerNode;
+    private final Node root = new Node();
+    private boolean frozen = false;
+
+    public SuggestionTrie(int maxSuggestionsPerNode) {
+        this.maxSuggestionsPerNode = maxSuggestionsPerNode;
+    }
+
+    // key phải là chuỗi đã chuẩn hóa bằng TextNormalizer
+    public void insert(String key, ProductSuggestionDTO suggestion) {
+        if (frozen) {
+            throw new IllegalStateException("Trie is frozen");
+        }
+        if (key == null || key.isEmpty()) {
+            return;
+        }
+        Node node = root;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.children.computeIfAbsent(key.charAt(i), c -> new Node());
+        }
+        node.terminals.add(suggestion);
+    }
+
+    public SuggestionTrie freeze() {
+        computeTop(root);
+        frozen = true;
+        return this;
+    }
+
+    public List<ProductSuggestionDTO> suggest(String normalizedPrefix, int limit) {
+        if (!frozen || normalizedPrefix == null || normalizedPrefix.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Node node = root;
+        for (int i = 0; i < normalizedPrefix.length() && node != null; i++) {
+            node = node.children.get(normalizedPrefix.charAt(i));
+        }
+        if (node == null) {
+            return Collections.emptyList();
+        }
+        return node.top.subList(0, Math.min(limit, node.top.size()));
+    }
+
+    private List<ProductSuggestionDTO> computeTop(Node node) {
+        // Cùng một gợi ý có thể được chèn theo nhiều key nằm chung nhánh nên cần loại trùng
+        Set<ProductSuggestionDTO> candidates = new LinkedHashSet<>(node.terminals);
+        for (Node child : node.children.values()) {
+            candidates.addAll(computeTop(child));
+        }
+        List<ProductSuggestionDTO> sorted = new ArrayList<>(candidates);
+        sorted.sort(BY_POPULARITY);
+        node.top = Collections.unmodifiableList(
+                new ArrayList<>(sorted.subList(0, Math.min(maxSuggestionsPerNode, sorted.size()))));
+        return node.top;
+    }
+
+    private static class Node {
+        private final Map<Character, Node> children = new HashMap<>();
+        private final List<ProductSuggestionDTO> terminals = new ArrayList<>();
+        private List<ProductSuggestionDTO> top = Collections.emptyList();
+    }
+}
@@ -0,0 +1,77 @@
+-- Chay moi lan khoi dong (spring.sql.init), cac cau lenh phai idempotent
+
+-- Bang cap phat id theo khoi cho order_items (thay AUTO_INCREMENT de Hibernate batch duoc INSERT)
+CREATE TABLE IF NOT EXISTS id_generators (
+    sequence_name VARCHAR(64) NOT NULL PRIMARY KEY,
+    next_val BIGINT NOT NULL
+);
+
+-- Khoi dau tu id lon nhat hien co; cong them allocationSize (50) vi optimizer pooled cap phat khoang [next_val - 49, next_val]
+INSERT IGNORE INTO id_generators (sequence_name, next_val)
+SELECT 'order_items', COALESCE(MAX(id), 0) + 51 FROM order_items;
+
+-- Index phu cho cac truy van tong hop doanh thu theo trang thai va thoi gian (MySQL khong co CREATE INDEX IF NOT EXISTS)
+SET @index_exists = (SELECT COUNT(*) FROM information_schema.statistics
+    WHERE table_schema = DATABASE() AND table_name = 'orders' AND index_name = 'idx_orders_status_created_at');
+SET @ddl = IF(@index_exists = 0,
+    'CREATE INDEX idx_orders_status_created_at ON orders (status, created_at, total_amount, discount_amount)',
+    'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- Bang tong hop doanh thu theo ngay (cap nhat dan khi don doi trang thai, co the tinh lai toan bo)
+CREATE TABLE IF NOT EXISTS daily_sales (
+    sales_date DATE NOT NULL PRIMARY KEY,
+    revenue DOUBLE NOT NULL DEFAULT 0,
+    order_count BIGINT NOT NULL DEFAULT 0,
+    units BIGINT NOT NULL DEFAULT 0,
+    discount_total DOUBLE NOT NULL DEFAULT 0,
+    cancelled_count BIGINT NOT NULL DEFAULT 0
+);
+
+CREATE TABLE IF NOT EXISTS daily_sales_breakdown (
+    sales_date DATE NOT NULL,
+    dimension VARCHAR(16) NOT NULL,
+    dimension_value VARCHAR(255) NOT NULL,
+    revenue DOUBLE NOT NULL DEFAULT 0,
+    units BIGINT NOT NULL DEFAULT 0,
+    order_count BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (sales_date, dimension, dimension_value)
+);
+
+-- Index cho phan trang keyset theo gia / ten / ngay tao (InnoDB tu kem khoa chinh id vao cuoi index)
+SET @index_exists = (SELECT COUNT(*) FROM information_schema.statistics
+    WHERE table_schema = DATABASE() AND table_name = 'products' AND index_name = 'idx_products_price');
+SET @ddl = IF(@index_exists = 0, 'CREATE INDEX idx_products_price ON products (price)', 'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @index_exists = (SELECT COUNT(*) FROM information_schema.statistics
+    WHERE table_schema = DATABASE() AND table_name = 'products' AND index_name = 'idx_products_name');
+SET @ddl = IF(@index_exists = 0, 'CREATE INDEX idx_products_name ON products (name)', 'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @index_exists = (SELECT COUNT(*) FROM information_schema.statistics
+    WHERE table_schema = DATABASE() AND table_name = 'products' AND index_name = 'idx_products_created_at');
+SET @ddl = IF(@index_exists = 0, 'CREATE INDEX idx_products_created_at ON products (created_at)', 'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- Cac ban resize cua anh san pham (thumbnail, listing, detail), sinh o background sau khi upload
+CREATE TABLE IF NOT EXISTS product_images (
+    id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    product_id BIGINT NOT NULL,
+    variant VARCHAR(16) NOT NULL,
+    source_url VARCHAR(255) NOT NULL,
+    url VARCHAR(255) NOT NULL,
+    width INT,
+    height INT,
+    created_at DATETIME,
+    UNIQUE KEY uk_product_images_product_variant (product_id, variant),
+    CONSTRAINT fk_product_images_product FOREIGN KEY (product_id) REFERENCES products (id) ON DELETE CASCADE
+);
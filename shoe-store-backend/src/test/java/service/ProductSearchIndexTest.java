@@ -0,0 +1,72 @@
+package service;
+
+import org.example.shoestorebackend.entity.Product;
+import org.example.shoestorebackend.entity.ProductFeature;
+import org.example.shoestorebackend.service.ProductSearchIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductSearchIndexTest {
+    private ProductSearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() {
+        // Không có transaction nên indexAfterCommit áp dụng ngay
+        searchIndex = new ProductSearchIndex();
+        searchIndex.indexAfterCommit(product(1L, "Giày chạy bộ Nike Air", "AIR-01", "Giày thể thao", "Đế êm"), List.of());
+        searchIndex.indexAfterCommit(product(2L, "Dép quai ngang", "DEP-02", "Dép", "Phù hợp đi biển"),
+                List.of(feature("Chống nước")));
+        searchIndex.indexAfterCommit(product(3L, "Giày da công sở", "DA-03", "Giày tây", "Da bò thật"), List.of());
+    }
+
+    @Test
+    void testSearchIsAccentInsensitive() {
+        assertEquals(List.of(3L), ids(searchIndex.search("giay da")));
+        assertEquals(List.of(2L), ids(searchIndex.search("chong nuoc")));
+        assertEquals(List.of(1L), ids(searchIndex.search("DE EM")));
+    }
+
+    @Test
+    void testNameMatchRanksAboveDescriptionMatch() {
+        // "da" nằm trong tên sản phẩm 3 nhưng chỉ nằm trong features của sản phẩm 4
+        searchIndex.indexAfterCommit(product(4L, "Sandal nữ", "SD-04", "Sandal", null), List.of(feature("Quai da")));
+
+        assertEquals(List.of(3L, 4L), ids(searchIndex.search("da")));
+    }
+
+    @Test
+    void testPrefixMatchAndRemoval() {
+        assertEquals(List.of(1L), ids(searchIndex.search("nik")));
+
+        searchIndex.removeAfterCommit(1L);
+
+        assertTrue(searchIndex.search("nike").isEmpty());
+        assertEquals(List.of(3L), ids(searchIndex.search("cong so")));
+    }
+
+    private static List<Long> ids(List<ProductSearchIndex.SearchHit> hits) {
+        return hits.stream().map(ProductSearchIndex.SearchHit::getProductId).collect(Collectors.toList());
+    }
+
+    private static Product product(Long id, String name, String model, String category, String description) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setModel(model);
+        product.setCategory(category);
+        product.setDescription(description);
+        product.setPrice(100.0);
+        return product;
+    }
+
+    private static ProductFeature feature(String text) {
+        ProductFeature feature = new ProductFeature();
+        feature.setFeature(text);
+        return feature;
+    }
+}
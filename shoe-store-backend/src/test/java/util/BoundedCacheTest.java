@@ -0,0 +1,61 @@
+package util;
+
+import org.example.shoestorebackend.util.BoundedCache;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BoundedCacheTest {
+
+    @Test
+    void testGetOrLoadCachesValue() {
+        BoundedCache<Long, String> cache = new BoundedCache<>(10, Duration.ofMinutes(5));
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("p1", cache.getOrLoad(1L, id -> { loads.incrementAndGet(); return "p" + id; }));
+        assertEquals("p1", cache.getOrLoad(1L, id -> { loads.incrementAndGet(); return "p" + id; }));
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsedWhenFull() {
+        BoundedCache<Long, String> cache = new BoundedCache<>(2, Duration.ofMinutes(5));
+        cache.put(1L, "a");
+        cache.put(2L, "b");
+        cache.get(1L); // 1 vừa được dùng, 2 là phần tử cũ nhất
+        cache.put(3L, "c");
+
+        assertEquals("a", cache.get(1L));
+        assertNull(cache.get(2L));
+        assertEquals("c", cache.get(3L));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void testExpiredEntryIsNotReturned() {
+        BoundedCache<Long, String> cache = new BoundedCache<>(10, Duration.ZERO);
+        cache.put(1L, "a");
+
+        assertNull(cache.get(1L));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testInvalidateDuringLoadDropsStaleValue() {
+        BoundedCache<Long, String> cache = new BoundedCache<>(10, Duration.ofMinutes(5));
+
+        String loaded = cache.getOrLoad(1L, id -> {
+            cache.invalidate(id); // ghi đồng thời xảy ra trong lúc đang load
+            return "stale";
+        });
+
+        assertEquals("stale", loaded);
+        assertNull(cache.get(1L));
+    }
+}
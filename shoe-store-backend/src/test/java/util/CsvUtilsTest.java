@@ -0,0 +1,42 @@
+package util;
+
+import org.example.shoestorebackend.util.CsvUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CsvUtilsTest {
+
+    @Test
+    void testFormattedLineParsesBack() {
+        String line = CsvUtils.formatLine("GX-01", "Giày \"Air\", bản mới", 1250000, null, "nam");
+        assertEquals(List.of("GX-01", "Giày \"Air\", bản mới", "1250000", "", "nam"),
+                CsvUtils.parseLine(line.substring(0, line.length() - 1)));
+    }
+
+    @Test
+    void testPlainValuesAreNotQuoted() {
+        assertEquals("a,b,\n", CsvUtils.formatLine("a", "b", null));
+    }
+
+    @Test
+    void testMultiLineRecordReadsBack() throws IOException {
+        String csv = CsvUtils.formatLine("GX-01", "Dòng 1\nDòng \"2\", cuối", 10)
+                + CsvUtils.formatLine("GX-02", "Một dòng", 20);
+        BufferedReader reader = new BufferedReader(new StringReader(csv));
+
+        assertEquals(List.of("GX-01", "Dòng 1\nDòng \"2\", cuối", "10"), CsvUtils.parseLine(CsvUtils.readRecord(reader)));
+        assertEquals(List.of("GX-02", "Một dòng", "20"), CsvUtils.parseLine(CsvUtils.readRecord(reader)));
+        assertNull(CsvUtils.readRecord(reader));
+    }
+
+    @Test
+    void testUnterminatedQuoteIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> CsvUtils.parseLine("a,\"b"));
+    }
+}
@@ -0,0 +1,57 @@
+package util;
+
+import org.example.shoestorebackend.util.JwtClaims;
+import org.example.shoestorebackend.util.JwtUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JwtUtilTest {
+
+    private JwtUtil jwtUtil;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = new JwtUtil(100);
+        ReflectionTestUtils.setField(jwtUtil, "SECRET_KEY", "c2hvZS1zdG9yZS10ZXN0LXNlY3JldC1rZXktZm9yLWhzNTEy");
+    }
+
+    @Test
+    void testParseTokenReturnsTypedClaimsAndCachesThem() {
+        String token = jwtUtil.generateToken("user@example.com", 7L, "USER");
+
+        JwtClaims claims = jwtUtil.parseToken(token);
+        assertNotNull(claims);
+        assertEquals("user@example.com", claims.getEmail());
+        assertEquals(7L, claims.getUserId());
+        assertEquals("USER", claims.getRole());
+        assertFalse(claims.isExpired());
+
+        // Lần parse thứ hai lấy từ cache
+        assertSame(claims, jwtUtil.parseToken(token));
+    }
+
+    @Test
+    void testTamperedTokenIsRejected() {
+        String token = jwtUtil.generateToken("user@example.com", 7L, "USER");
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+        assertNull(jwtUtil.parseToken(tampered));
+        assertFalse(jwtUtil.validateToken(tampered));
+        assertNull(jwtUtil.parseToken(null));
+        assertThrows(RuntimeException.class, () -> jwtUtil.extractUserId(tampered));
+    }
+
+    @Test
+    void testGetClaimsPrefersRequestAttribute() {
+        JwtClaims attached = new JwtClaims("admin@example.com", 1L, "ADMIN", null);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute(JwtClaims.REQUEST_ATTRIBUTE, attached);
+
+        assertSame(attached, jwtUtil.getClaims(request, "not-a-token"));
+        assertThrows(RuntimeException.class, () -> jwtUtil.getClaims(new MockHttpServletRequest(), "not-a-token"));
+    }
+}
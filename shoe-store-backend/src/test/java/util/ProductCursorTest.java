@@ -0,0 +1,54 @@
+package util;
+
+import org.example.shoestorebackend.entity.Product;
+import org.example.shoestorebackend.util.ProductCursor;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductCursorTest {
+
+    @Test
+    void testEncodedCursorDecodesForSameSort() {
+        Product product = new Product();
+        product.setId(42L);
+        product.setPrice(1250000.0);
+        product.setName("Giày chạy bộ");
+        product.setCreatedAt(LocalDateTime.of(2025, 3, 1, 10, 30));
+
+        for (Sort.Order order : new Sort.Order[]{Sort.Order.desc("id"), Sort.Order.asc("price"),
+                Sort.Order.desc("name"), Sort.Order.desc("createdAt")}) {
+            String token = ProductCursor.after(product, order).encode();
+            ProductCursor decoded = ProductCursor.decode(token);
+            assertTrue(decoded.matches(order));
+            assertEquals(token, decoded.encode());
+        }
+    }
+
+    @Test
+    void testCursorDoesNotMatchOtherSort() {
+        Product product = new Product();
+        product.setId(1L);
+        product.setPrice(10.0);
+        ProductCursor cursor = ProductCursor.decode(ProductCursor.after(product, Sort.Order.asc("price")).encode());
+
+        assertFalse(cursor.matches(Sort.Order.desc("price")));
+        assertFalse(cursor.matches(Sort.Order.asc("name")));
+    }
+
+    @Test
+    void testInvalidCursorIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> ProductCursor.decode("not-a-cursor"));
+        assertThrows(IllegalArgumentException.class, () -> ProductCursor.decode(""));
+    }
+
+    @Test
+    void testOnlySingleSupportedSortIsAllowed() {
+        assertTrue(ProductCursor.supports(Sort.by("price").ascending()));
+        assertFalse(ProductCursor.supports(Sort.by("sold").descending()));
+        assertFalse(ProductCursor.supports(Sort.unsorted()));
+    }
+}
@@ -0,0 +1,49 @@
+package util;
+
+import org.example.shoestorebackend.dto.ProductSuggestionDTO;
+import org.example.shoestorebackend.util.SuggestionTrie;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SuggestionTrieTest {
+
+    @Test
+    void testSuggestReturnsMostPopularFirst() {
+        SuggestionTrie trie = new SuggestionTrie(5);
+        trie.insert("nike air", new ProductSuggestionDTO("Nike Air", "product", 1L, 10));
+        trie.insert("nike zoom", new ProductSuggestionDTO("Nike Zoom", "product", 2L, 50));
+        trie.insert("new balance", new ProductSuggestionDTO("New Balance", "product", 3L, 5));
+        trie.freeze();
+
+        assertEquals(List.of("Nike Zoom", "Nike Air", "New Balance"), texts(trie.suggest("n", 10)));
+        assertEquals(List.of("Nike Zoom", "Nike Air"), texts(trie.suggest("nik", 10)));
+        assertEquals(List.of("Nike Zoom"), texts(trie.suggest("nike", 1)));
+        assertTrue(trie.suggest("adidas", 10).isEmpty());
+    }
+
+    @Test
+    void testSameSuggestionUnderSeveralKeysIsReturnedOnce() {
+        SuggestionTrie trie = new SuggestionTrie(5);
+        ProductSuggestionDTO suggestion = new ProductSuggestionDTO("Air Air", "product", 1L, 1);
+        trie.insert("air air", suggestion);
+        trie.insert("air", suggestion);
+        trie.freeze();
+
+        assertEquals(1, trie.suggest("a", 10).size());
+    }
+
+    @Test
+    void testFrozenTrieRejectsInsert() {
+        SuggestionTrie trie = new SuggestionTrie(5).freeze();
+        assertThrows(IllegalStateException.class,
+                () -> trie.insert("x", new ProductSuggestionDTO("X", "product", 1L, 0)));
+    }
+
+    private static List<String> texts(List<ProductSuggestionDTO> suggestions) {
+        return suggestions.stream().map(ProductSuggestionDTO::getText).collect(Collectors.toList());
+    }
+}